@@ -0,0 +1,19 @@
+package com.nsbm.autovault.adminmodule.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.context.annotation.Configuration;
+
+// Turns on the product caches. Cache sizes and expiry are set under spring.cache in application.yaml.
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    // Holds the single entry of the full catalog listing
+    public static final String PRODUCT_LIST_CACHE = "productList";
+    // Key of that entry, the one @Cacheable uses for a method without parameters. Evict it by key rather than
+    // clearing the cache: evicting waits for a load in progress and drops it, clearing leaves it to be stored.
+    public static final Object PRODUCT_LIST_KEY = SimpleKey.EMPTY;
+    // Holds single products by id
+    public static final String PRODUCTS_CACHE = "products";
+}
@@ -1,14 +1,33 @@
 package com.nsbm.autovault.adminmodule.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nsbm.autovault.adminmodule.dto.ImportReportDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductImageDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductPageDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductPatchDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
 import com.nsbm.autovault.adminmodule.model.ProductDetails;
+import com.nsbm.autovault.adminmodule.repo.ProductSort;
 import com.nsbm.autovault.adminmodule.service.AdminService;
+import com.nsbm.autovault.adminmodule.service.CatalogVersion;
+import com.nsbm.autovault.adminmodule.service.ProductBulkService;
+import com.nsbm.autovault.adminmodule.storage.ImageResponseWriter;
+import com.nsbm.autovault.adminmodule.storage.ImageVariant;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -16,11 +35,24 @@ import java.util.Optional;
 @CrossOrigin
 public class AdminController {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final AdminService adminService;
+    private final ProductBulkService productBulkService;
+    private final ImageResponseWriter imageResponseWriter;
+    private final ObjectMapper objectMapper;
+    private final CatalogVersion catalogVersion;
 
-    // Constructor to inject the AdminService into this controller
-    public AdminController(AdminService adminService) {
+    // Constructor to inject the services and helpers into this controller
+    public AdminController(AdminService adminService, ProductBulkService productBulkService,
+                           ImageResponseWriter imageResponseWriter, ObjectMapper objectMapper,
+                           CatalogVersion catalogVersion) {
         this.adminService = adminService;
+        this.productBulkService = productBulkService;
+        this.imageResponseWriter = imageResponseWriter;
+        this.objectMapper = objectMapper;
+        this.catalogVersion = catalogVersion;
     }
 
     // CREATE Product
@@ -41,14 +73,99 @@ public class AdminController {
 
     // READ (Get All Products)
     @GetMapping("/products") // Endpoint to get all products
-    public ResponseEntity<List<ProductDetails>> getAllProducts() {
-        List<ProductDetails> products = adminService.getAllProducts(); // Get all products from the service
+    public ResponseEntity<List<ProductSummaryDTO>> getAllProducts(HttpServletRequest request, HttpServletResponse response) {
+        // Answer If-None-Match / If-Modified-Since from the catalog version, before the catalog is loaded
+        CatalogVersion.Snapshot version = catalogVersion.current();
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache"); // Clients may keep the list but must revalidate it
+        if (new ServletWebRequest(request, response).checkNotModified(version.getETag(), version.getLastModified())) {
+            return null; // 304 Not Modified has already been written
+        }
+        List<ProductSummaryDTO> products = adminService.getAllProducts(); // Get all products (without images) from the service
         if (products.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
         }
         return ResponseEntity.ok(products);
     }
 
+    // READ (Get Products Page by Page)
+    @GetMapping("/products/page") // Endpoint to page through the products, pass nextCursor back to get the next page
+    public ResponseEntity<ProductPageDTO> getProductPage(
+            @RequestParam(value = "sort", defaultValue = "id") String sort, // id, price or name
+            @RequestParam(value = "dir", defaultValue = "asc") String dir, // asc or desc
+            @RequestParam(value = "cursor", required = false) String cursor, // nextCursor of the previous page
+            @RequestParam(value = "size", defaultValue = "20") int size) { // Products per page
+        if (size < 1 || size > MAX_PAGE_SIZE || !(dir.equalsIgnoreCase("asc") || dir.equalsIgnoreCase("desc"))) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(adminService.getProductPage(ProductSort.fromKey(sort), dir.equalsIgnoreCase("desc"), cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build(); // Unknown sort or a cursor from another sort order
+        }
+    }
+
+    // SEARCH Products
+    @GetMapping("/products/search") // Endpoint to search products by name and description, best matches first
+    public ResponseEntity<List<ProductSummaryDTO>> searchProducts(
+            @RequestParam(value = "q", defaultValue = "") String query, // Words to search for, the last one may be cut short
+            @RequestParam(value = "minPrice", required = false) Double minPrice, // Lowest price (optional)
+            @RequestParam(value = "maxPrice", required = false) Double maxPrice, // Highest price (optional)
+            @RequestParam(value = "limit", defaultValue = "20") int limit) { // Maximum number of results
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(adminService.searchProducts(query, minPrice, maxPrice, limit));
+    }
+
+    // READ (Get One Product)
+    @GetMapping("/products/{id}") // Endpoint to get a single product by ID
+    public ResponseEntity<ProductSummaryDTO> getProduct(@PathVariable Long id) {
+        return adminService.getProduct(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
+
+    // READ (Get Product Image)
+    @GetMapping("/products/{id}/image") // Endpoint to download the image of a product
+    public void getProductImage(
+            @PathVariable Long id,
+            @RequestParam(value = "size", defaultValue = "original") String size, // thumbnail, medium or original
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ImageVariant variant;
+        try {
+            variant = ImageVariant.fromKey(size);
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+            return;
+        }
+        // The product summary is cached, so neither a 304 nor the image itself needs the database
+        Optional<ProductImageDTO> image = adminService.getProduct(id)
+                .flatMap(product -> adminService.getProductImage(product, variant));
+        if (image.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        ProductImageDTO found = image.get();
+        boolean gzip = false;
+        if (found.getGzipFile() != null) {
+            response.addHeader("Vary", "Accept-Encoding");
+            String acceptEncoding = request.getHeader("Accept-Encoding");
+            gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache"); // The URL stays the same when the image is replaced
+        if (new ServletWebRequest(request, response).checkNotModified(found.getETag(gzip))) {
+            return; // The client's copy has the same content hash
+        }
+
+        // Stream the file straight from disk to the socket, using the pre-compressed copy when the client accepts it
+        if (gzip) {
+            imageResponseWriter.write(found.getGzipFile(), found.getContentType(), "gzip", request, response);
+        } else {
+            imageResponseWriter.write(found.getFile(), found.getContentType(), request, response);
+        }
+    }
+
     // UPDATE Product
     @PutMapping("/products/{id}") // Endpoint to update an existing product by ID
     public ResponseEntity<String> updateProduct(
@@ -69,6 +186,19 @@ public class AdminController {
         }
     }
 
+    // PARTIAL UPDATE Product
+    @PatchMapping("/products/{id}") // Endpoint to change only some fields of a product (JSON body)
+    public ResponseEntity<String> patchProduct(@PathVariable Long id, @RequestBody ProductPatchDTO patch) {
+        if (patch.isEmpty()) {
+            return ResponseEntity.badRequest().body("Nothing to update");
+        }
+        boolean isUpdated = adminService.patchProduct(id, patch); // Update only the fields sent in the request
+        if (!isUpdated) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Product not found");
+        }
+        return ResponseEntity.ok("Product updated successfully! ID: " + id);
+    }
+
     // DELETE Product
     @DeleteMapping("/products/{id}") // Endpoint to delete a product by ID
     public ResponseEntity<String> deleteProduct(@PathVariable Long id) {
@@ -78,4 +208,54 @@ public class AdminController {
         }
         return ResponseEntity.ok("Product deleted successfully");
     }
+
+    // BULK IMPORT Products
+    // The body is an NDJSON or CSV file (Content-Type application/x-ndjson or text/csv).
+    // The response is NDJSON: one "error" line per rejected row, "progress" lines after each batch and a final "summary".
+    @PostMapping(value = "/products/import", consumes = {"application/x-ndjson", "text/csv"})
+    public void importProducts(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ProductBulkService.Format format = ProductBulkService.Format.of(request.getContentType());
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+
+        ProductBulkService.ImportListener listener = new ProductBulkService.ImportListener() {
+            @Override
+            public void onRowError(long line, String message) throws IOException {
+                out.println(objectMapper.writeValueAsString(Map.of("type", "error", "line", line, "message", message)));
+            }
+
+            @Override
+            public void onProgress(ImportReportDTO report) throws IOException {
+                out.println(objectMapper.writeValueAsString(Map.of("type", "progress", "report", report)));
+                out.flush();  // Let the client see the progress while the upload is still running
+            }
+        };
+        try {
+            ImportReportDTO report = productBulkService.importProducts(request.getInputStream(), format, listener);
+            out.println(objectMapper.writeValueAsString(Map.of("type", "summary", "report", report)));
+        } catch (IllegalArgumentException e) {
+            // Only the CSV header can fail the whole import, nothing has been written yet at that point
+            response.reset();
+            response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+        }
+    }
+
+    // BULK EXPORT Products
+    @GetMapping("/products/export") // Endpoint to download the whole catalog as NDJSON or CSV
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ProductBulkService.Format exportFormat;
+        try {
+            exportFormat = ProductBulkService.Format.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean csv = exportFormat == ProductBulkService.Format.CSV;
+        StreamingResponseBody body = out -> productBulkService.exportProducts(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : new MediaType("application", "x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + (csv ? "csv" : "ndjson"))
+                .body(body);
+    }
 }
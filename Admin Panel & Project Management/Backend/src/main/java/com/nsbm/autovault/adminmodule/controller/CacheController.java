@@ -0,0 +1,43 @@
+package com.nsbm.autovault.adminmodule.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/admin/cache") // Monitoring endpoints for the in-process caches
+@CrossOrigin
+public class CacheController {
+
+    private final CacheManager cacheManager;
+
+    public CacheController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    // READ (Cache Statistics)
+    @GetMapping("/stats") // Endpoint to get hit, miss and eviction counters of every cache
+    public ResponseEntity<Map<String, Map<String, Object>>> getCacheStats() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof CaffeineCache caffeineCache) {
+                CacheStats stats = caffeineCache.getNativeCache().stats();
+                Map<String, Object> values = new LinkedHashMap<>();
+                values.put("size", caffeineCache.getNativeCache().estimatedSize());
+                values.put("hits", stats.hitCount());
+                values.put("misses", stats.missCount());
+                values.put("hitRate", stats.hitRate());
+                values.put("evictions", stats.evictionCount());
+                result.put(name, values);
+            }
+        }
+        return ResponseEntity.ok(result);
+    }
+}
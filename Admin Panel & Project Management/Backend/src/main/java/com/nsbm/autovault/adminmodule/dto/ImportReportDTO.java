@@ -0,0 +1,33 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+// Counters of a bulk product import, sent as progress while the import runs and as the final result
+public class ImportReportDTO {
+
+    private long processed; // Rows read from the file (blank lines and the CSV header are not counted)
+    private long imported; // Rows saved to the database
+    private long failed; // Rows rejected by validation
+    // Getter method for the number of processed rows
+    public long getProcessed() {
+        return processed;
+    }
+    // Setter method to set the number of processed rows
+    public void setProcessed(long processed) {
+        this.processed = processed;
+    }
+    // Getter method for the number of imported rows
+    public long getImported() {
+        return imported;
+    }
+    // Setter method to set the number of imported rows
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+    // Getter method for the number of failed rows
+    public long getFailed() {
+        return failed;
+    }
+    // Setter method to set the number of failed rows
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+}
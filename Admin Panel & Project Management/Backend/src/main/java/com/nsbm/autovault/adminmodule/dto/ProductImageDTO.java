@@ -0,0 +1,61 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import com.nsbm.autovault.adminmodule.storage.ImageVariant;
+
+import java.nio.file.Path;
+
+// Where the image of a product is stored, together with the MIME type it was uploaded with
+public class ProductImageDTO {
+
+    private final String imageHash; // SHA-256 of the image, used as its storage key
+    private String contentType; // The MIME type of the image (may be null for old uploads)
+    private Path file; // The stored image file, resolved by the service
+    private ImageVariant variant; // The size the file actually has, the original when a rendition isn't built yet
+    private Path gzipFile; // A gzip compressed copy of the file, only present for compressible formats
+
+    public ProductImageDTO(String imageHash, String contentType) {
+        this.imageHash = imageHash;
+        this.contentType = contentType;
+    }
+    // Getter method for the image hash
+    public String getImageHash() {
+        return imageHash;
+    }
+    // Getter method for the image content type
+    public String getContentType() {
+        return contentType;
+    }
+    // Setter method to set the image content type
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+    // Getter method for the stored image file
+    public Path getFile() {
+        return file;
+    }
+    // Setter method to set the stored image file
+    public void setFile(Path file) {
+        this.file = file;
+    }
+    // Getter method for the size of the stored file
+    public ImageVariant getVariant() {
+        return variant;
+    }
+    // Setter method to set the size of the stored file
+    public void setVariant(ImageVariant variant) {
+        this.variant = variant;
+    }
+    // Getter method for the gzip compressed copy of the file
+    public Path getGzipFile() {
+        return gzipFile;
+    }
+    // Setter method to set the gzip compressed copy of the file
+    public void setGzipFile(Path gzipFile) {
+        this.gzipFile = gzipFile;
+    }
+    // Strong ETag of the bytes that are served: the content hash plus the rendition and encoding
+    public String getETag(boolean gzip) {
+        String tag = variant == null || variant == ImageVariant.ORIGINAL ? imageHash : imageHash + "-" + variant.getKey();
+        return "\"" + (gzip ? tag + "-gz" : tag) + "\"";
+    }
+}
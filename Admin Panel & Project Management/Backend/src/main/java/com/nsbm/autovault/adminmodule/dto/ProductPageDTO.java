@@ -0,0 +1,44 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import java.util.List;
+
+// One page of the product listing, with the cursor to pass back for the next page
+public class ProductPageDTO {
+
+    private List<ProductSummaryDTO> products; // The products on this page
+    private String nextCursor; // Opaque cursor of the next page, null on the last page
+    private boolean hasNext; // Whether there is a next page
+
+    public ProductPageDTO() {
+    }
+
+    public ProductPageDTO(List<ProductSummaryDTO> products, String nextCursor) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+        this.hasNext = nextCursor != null;
+    }
+    // Getter method for the products on this page
+    public List<ProductSummaryDTO> getProducts() {
+        return products;
+    }
+    // Setter method to set the products on this page
+    public void setProducts(List<ProductSummaryDTO> products) {
+        this.products = products;
+    }
+    // Getter method for the cursor of the next page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    // Setter method to set the cursor of the next page
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+    // Getter method for whether there is a next page
+    public boolean isHasNext() {
+        return hasNext;
+    }
+    // Setter method to set whether there is a next page
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
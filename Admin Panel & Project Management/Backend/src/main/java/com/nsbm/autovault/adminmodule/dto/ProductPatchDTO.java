@@ -0,0 +1,38 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+// Fields of a product that can be changed with a PATCH request.
+// A field left out of the request (null) keeps its current value.
+public class ProductPatchDTO {
+
+    private String name; // The new name of the product
+    private Double price; // The new price of the product
+    private String description; // The new description of the product
+    // Getter method for the product's name
+    public String getName() {
+        return name;
+    }
+    // Setter method to set the product's name
+    public void setName(String name) {
+        this.name = name;
+    }
+    // Getter method for the product's price
+    public Double getPrice() {
+        return price;
+    }
+    // Setter method to set the product's price
+    public void setPrice(Double price) {
+        this.price = price;
+    }
+    // Getter method for the product's description
+    public String getDescription() {
+        return description;
+    }
+    // Setter method to set the product's description
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    // Check if the request changes anything at all
+    public boolean isEmpty() {
+        return name == null && price == null && description == null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Lightweight view of a product used for catalog listings.
+// It never carries the image bytes, only a URL the client can load the image from.
+public class ProductSummaryDTO {
+
+    private Long id; // The id of the product
+    private String name; // The name of the product
+    private double price; // The price of the product
+    private String description; // A short description of the product
+    private String imageUrl; // Where the client can download the product image
+    private String imageHash; // SHA-256 of the image, changes whenever the image changes
+    @JsonIgnore
+    private String imageContentType; // The MIME type of the image, kept so the image can be served from the cache
+
+    public ProductSummaryDTO() {
+    }
+
+    // Used by the repository to build the listing directly from a JPQL query
+    public ProductSummaryDTO(Long id, String name, double price, String description, String imageHash) {
+        this(id, name, price, description, imageHash, null);
+    }
+
+    public ProductSummaryDTO(Long id, String name, double price, String description, String imageHash,
+                             String imageContentType) {
+        this.id = id;
+        this.name = name;
+        this.price = price;
+        this.description = description;
+        this.imageHash = imageHash;
+        this.imageContentType = imageContentType;
+        this.imageUrl = "/admin/products/" + id + "/image";
+    }
+    // Getter method for the product's id
+    public Long getId() {
+        return id;
+    }
+    // Setter method to set the product's id
+    public void setId(Long id) {
+        this.id = id;
+    }
+    // Getter method for the product's name
+    public String getName() {
+        return name;
+    }
+    // Setter method to set the product's name
+    public void setName(String name) {
+        this.name = name;
+    }
+    // Getter method for the product's price
+    public double getPrice() {
+        return price;
+    }
+    // Setter method to set the product's price
+    public void setPrice(double price) {
+        this.price = price;
+    }
+    // Getter method for the product's description
+    public String getDescription() {
+        return description;
+    }
+    // Setter method to set the product's description
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    // Getter method for the product's image URL
+    public String getImageUrl() {
+        return imageUrl;
+    }
+    // Setter method to set the product's image URL
+    public void setImageUrl(String imageUrl) {
+        this.imageUrl = imageUrl;
+    }
+    // Getter method for the product's image hash
+    public String getImageHash() {
+        return imageHash;
+    }
+    // Setter method to set the product's image hash
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+    // Getter method for the product's image content type
+    public String getImageContentType() {
+        return imageContentType;
+    }
+    // Setter method to set the product's image content type
+    public void setImageContentType(String imageContentType) {
+        this.imageContentType = imageContentType;
+    }
+}
@@ -4,21 +4,33 @@ import jakarta.persistence.*;
 
 // This marks the class as an entity for the database
 @Entity
+// Indexes for the paged listing sorted by price or name, the id makes the position of every row unique
+@Table(indexes = {
+        @Index(name = "idx_product_price_id", columnList = "price, id"),
+        @Index(name = "idx_product_name_id", columnList = "name, id")
+})
 public class ProductDetails {
 
     // This is the primary key for the product, it will be auto-generated
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    // The name of the product
+    // The name of the product, never null so that the listing sorted by name can seek past it
+    @Column(nullable = false)
     private String name;
     // The price of the product
     private double price;
     // A short description of the product
     private String description;
-    // This will store the image of the product in binary format
+    // Images used to be stored here in binary format.
+    // New images go to the ImageStorage, this column is only read by ImageBlobMigration.
     @Lob
     private byte[] imageData;
+    // SHA-256 of the image bytes, this is the key of the image in the ImageStorage
+    @Column(length = 64)
+    private String imageHash;
+    // The MIME type the image was uploaded with (e.g. image/jpeg)
+    private String imageContentType;
     // Getter and setter methods for the fields
     // Get the id of the product
     public Long getId() {
@@ -60,4 +72,20 @@ public class ProductDetails {
     public void setImageData(byte[] imageData) {
         this.imageData = imageData;
     }
+    // Get the hash of the product image
+    public String getImageHash() {
+        return imageHash;
+    }
+    // Set the hash of the product image
+    public void setImageHash(String imageHash) {
+        this.imageHash = imageHash;
+    }
+    // Get the content type of the product image
+    public String getImageContentType() {
+        return imageContentType;
+    }
+    // Set the content type of the product image
+    public void setImageContentType(String imageContentType) {
+        this.imageContentType = imageContentType;
+    }
 }
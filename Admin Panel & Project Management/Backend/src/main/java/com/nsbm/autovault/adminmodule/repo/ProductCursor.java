@@ -0,0 +1,80 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in the paged product listing: the sort value and id of the last product on a page.
+// The next page starts right after it, so every page costs one index range scan no matter how deep it is.
+// Clients only see it as an opaque string.
+public class ProductCursor {
+
+    private final ProductSort sort;
+    private final boolean descending;
+    private final Long id;
+    private final Object value; // Price (Double) or name (String) of the last product, unused when sorting by id
+
+    public ProductCursor(ProductSort sort, boolean descending, Long id, Object value) {
+        this.sort = sort;
+        this.descending = descending;
+        this.id = id;
+        this.value = value;
+    }
+
+    // Cursor pointing right after the given product
+    public static ProductCursor after(ProductSummaryDTO product, ProductSort sort, boolean descending) {
+        Object value = switch (sort) {
+            case ID -> null;
+            case PRICE -> product.getPrice();
+            case NAME -> product.getName();
+        };
+        return new ProductCursor(sort, descending, product.getId(), value);
+    }
+
+    // The cursor as a URL-safe string: sort, direction, id and value
+    public String encode() {
+        String plain = sort.getKey() + ":" + (descending ? "desc" : "asc") + ":" + id + ":" + (value == null ? "" : value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Read a cursor created by encode(), it must belong to the same sort and direction as the request
+    public static ProductCursor decode(String encoded, ProductSort sort, boolean descending) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split(":", 4);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 4 || !parts[0].equals(sort.getKey()) || !parts[1].equals(descending ? "desc" : "asc")) {
+            throw new IllegalArgumentException("Cursor does not belong to this sort order");
+        }
+        try {
+            Object value = switch (sort) {
+                case ID -> null;
+                case PRICE -> Double.valueOf(parts[3]);
+                case NAME -> parts[3];  // The name is last, so it may itself contain ':'
+            };
+            return new ProductCursor(sort, descending, Long.valueOf(parts[2]), value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // Getter method for the sort order
+    public ProductSort getSort() {
+        return sort;
+    }
+    // Getter method for the direction
+    public boolean isDescending() {
+        return descending;
+    }
+    // Getter method for the id of the last product
+    public Long getId() {
+        return id;
+    }
+    // Getter method for the sort value of the last product
+    public Object getValue() {
+        return value;
+    }
+}
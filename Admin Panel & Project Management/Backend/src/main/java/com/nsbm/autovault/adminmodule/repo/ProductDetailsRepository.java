@@ -1,9 +1,31 @@
 package com.nsbm.autovault.adminmodule.repo;
 
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
 import com.nsbm.autovault.adminmodule.model.ProductDetails;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
 
 // This interface allows CRUD operations for ProductDetails in the database.
-public interface ProductDetailsRepository extends JpaRepository<ProductDetails, Long> {
-}
+public interface ProductDetailsRepository extends JpaRepository<ProductDetails, Long>, ProductDetailsRepositoryCustom {
+
+    // Fetch the catalog listing without selecting the image column
+    @Query("SELECT new com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO(" +
+            "p.id, p.name, p.price, p.description, p.imageHash, p.imageContentType) " +
+            "FROM ProductDetails p ORDER BY p.id")
+    List<ProductSummaryDTO> findAllSummaries();
 
+    // Fetch a single product without selecting the image column
+    @Query("SELECT new com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO(" +
+            "p.id, p.name, p.price, p.description, p.imageHash, p.imageContentType) " +
+            "FROM ProductDetails p WHERE p.id = :id")
+    Optional<ProductSummaryDTO> findSummaryById(@Param("id") Long id);
+
+    // Fetch the ids of products whose image still lives in the imageData column
+    @Query("SELECT p.id FROM ProductDetails p WHERE p.imageData IS NOT NULL ORDER BY p.id")
+    List<Long> findIdsWithImageData(Pageable pageable);
+}
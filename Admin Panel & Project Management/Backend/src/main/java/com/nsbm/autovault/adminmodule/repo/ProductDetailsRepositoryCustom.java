@@ -0,0 +1,17 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.dto.ProductPatchDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
+
+import java.util.List;
+
+// Queries on ProductDetails that are built at runtime and can't be expressed as a derived or @Query method
+public interface ProductDetailsRepositoryCustom {
+
+    // Update only the fields set in the patch, returns the number of rows changed (0 if the product doesn't exist)
+    int patchProduct(Long id, ProductPatchDTO patch);
+
+    // Fetch up to `limit` products in the given order, starting after the cursor (null for the first page).
+    // Only the summary columns are selected, never the image column.
+    List<ProductSummaryDTO> findSummaryPage(ProductSort sort, boolean descending, ProductCursor after, int limit);
+}
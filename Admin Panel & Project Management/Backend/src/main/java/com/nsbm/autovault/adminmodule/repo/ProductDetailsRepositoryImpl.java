@@ -0,0 +1,76 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.dto.ProductPatchDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
+import com.nsbm.autovault.adminmodule.model.ProductDetails;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+// Implementation of ProductDetailsRepositoryCustom, picked up by Spring Data through the Impl suffix
+public class ProductDetailsRepositoryImpl implements ProductDetailsRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patchProduct(Long id, ProductPatchDTO patch) {
+        // A single UPDATE touching only the given columns. The row is never loaded,
+        // so the image columns are neither read nor written.
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<ProductDetails> update = cb.createCriteriaUpdate(ProductDetails.class);
+        Root<ProductDetails> product = update.from(ProductDetails.class);
+        if (patch.getName() != null) {
+            update.set(product.<String>get("name"), patch.getName());
+        }
+        if (patch.getPrice() != null) {
+            update.set(product.<Double>get("price"), patch.getPrice());
+        }
+        if (patch.getDescription() != null) {
+            update.set(product.<String>get("description"), patch.getDescription());
+        }
+        update.where(cb.equal(product.get("id"), id));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+
+    @Override
+    public List<ProductSummaryDTO> findSummaryPage(ProductSort sort, boolean descending, ProductCursor after, int limit) {
+        String field = "p." + sort.getKey();
+        String direction = descending ? "DESC" : "ASC";
+        String compare = descending ? "<" : ">";
+
+        StringBuilder jpql = new StringBuilder("SELECT new com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO(" +
+                "p.id, p.name, p.price, p.description, p.imageHash, p.imageContentType) FROM ProductDetails p");
+        if (after != null) {
+            // Rows after (value, id) in the sort order. Written out instead of a row comparison,
+            // which JPQL doesn't have, in a form the database can still run as a range scan on (value, id).
+            if (sort == ProductSort.ID) {
+                jpql.append(" WHERE p.id ").append(compare).append(" :id");
+            } else {
+                jpql.append(" WHERE ").append(field).append(' ').append(compare).append(" :value OR (")
+                        .append(field).append(" = :value AND p.id ").append(compare).append(" :id)");
+            }
+        }
+        if (sort != ProductSort.ID) {
+            jpql.append(" ORDER BY ").append(field).append(' ').append(direction).append(", p.id ").append(direction);
+        } else {
+            jpql.append(" ORDER BY p.id ").append(direction);
+        }
+
+        TypedQuery<ProductSummaryDTO> query = entityManager.createQuery(jpql.toString(), ProductSummaryDTO.class);
+        if (after != null) {
+            query.setParameter("id", after.getId());
+            if (sort != ProductSort.ID) {
+                query.setParameter("value", after.getValue());
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,67 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.config.CacheConfig;
+import com.nsbm.autovault.adminmodule.service.CatalogVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+// One-time migration that makes product_details.name NOT NULL, which ddl-auto=update doesn't do for an existing column.
+// The paged listing sorted by name seeks with name > :value, which never matches a NULL name,
+// so products without a name get an empty one first. It runs on every startup but only does work while the column is nullable.
+@Component
+public class ProductNameMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductNameMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheManager cacheManager;
+    private final CatalogVersion catalogVersion;
+
+    public ProductNameMigration(JdbcTemplate jdbcTemplate, CacheManager cacheManager, CatalogVersion catalogVersion) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheManager = cacheManager;
+        this.catalogVersion = catalogVersion;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!isNameNullable()) {
+            return;
+        }
+        int filled = jdbcTemplate.update("UPDATE product_details SET name = '' WHERE name IS NULL");
+        jdbcTemplate.execute("ALTER TABLE product_details MODIFY name VARCHAR(255) NOT NULL");
+        if (filled > 0) {
+            // Names changed, drop anything cached while the migration was running
+            Cache listCache = cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE);
+            if (listCache != null) {
+                listCache.evict(CacheConfig.PRODUCT_LIST_KEY);
+            }
+            Cache productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+            if (productsCache != null) {
+                productsCache.clear();
+            }
+            catalogVersion.bump();
+        }
+        log.info("Made product_details.name NOT NULL, {} products without a name now have an empty one", filled);
+    }
+
+    private boolean isNameNullable() {
+        Boolean nullable = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, "product_details", "name")) {
+                return columns.next() && columns.getInt("NULLABLE") != DatabaseMetaData.columnNoNulls;
+            }
+        });
+        return Boolean.TRUE.equals(nullable);
+    }
+}
@@ -0,0 +1,33 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import java.util.Locale;
+
+// The orders the paged product listing can be sorted in. Every order ends with the id,
+// so rows with the same price or name still have a fixed position a cursor can point to.
+public enum ProductSort {
+
+    ID("id"),
+    PRICE("price"), // Backed by the (price, id) index
+    NAME("name"); // Backed by the (name, id) index
+
+    private final String key;
+
+    ProductSort(String key) {
+        this.key = key;
+    }
+
+    // Name of the sort in URLs, also the ProductDetails field it sorts on
+    public String getKey() {
+        return key;
+    }
+
+    // Find the sort for a ?sort= request parameter
+    public static ProductSort fromKey(String key) {
+        for (ProductSort sort : values()) {
+            if (sort.key.equals(key.toLowerCase(Locale.ROOT))) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort: " + key + " (use id, price or name)");
+    }
+}
@@ -1,11 +1,26 @@
 package com.nsbm.autovault.adminmodule.service;
 
+import com.nsbm.autovault.adminmodule.config.CacheConfig;
+import com.nsbm.autovault.adminmodule.dto.ProductImageDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductPageDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductPatchDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
 import com.nsbm.autovault.adminmodule.model.ProductDetails;
+import com.nsbm.autovault.adminmodule.repo.ProductCursor;
 import com.nsbm.autovault.adminmodule.repo.ProductDetailsRepository;
+import com.nsbm.autovault.adminmodule.repo.ProductSort;
+import com.nsbm.autovault.adminmodule.storage.ImageStorage;
+import com.nsbm.autovault.adminmodule.storage.ImageVariant;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,9 +28,21 @@ import java.util.Optional;
 public class AdminService {
 
     private final ProductDetailsRepository productDetailsRepository;
+    private final ImageStorage imageStorage;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ProductSearchIndex productSearchIndex;
+    private final CatalogVersion catalogVersion;
+    private final CacheManager cacheManager;
 
-    public AdminService(ProductDetailsRepository productDetailsRepository) {
+    public AdminService(ProductDetailsRepository productDetailsRepository, ImageStorage imageStorage,
+                        ImageDerivativeService imageDerivativeService, ProductSearchIndex productSearchIndex,
+                        CatalogVersion catalogVersion, CacheManager cacheManager) {
         this.productDetailsRepository = productDetailsRepository;
+        this.imageStorage = imageStorage;
+        this.imageDerivativeService = imageDerivativeService;
+        this.productSearchIndex = productSearchIndex;
+        this.catalogVersion = catalogVersion;
+        this.cacheManager = cacheManager;
     }
 
     public ProductDetails saveProduct(String name, double price, String description, MultipartFile file) throws IOException {
@@ -25,16 +52,73 @@ public class AdminService {
         product.setDescription(description);  // Set the product's description
 
         if (file != null && !file.isEmpty()) {
-            product.setImageData(file.getBytes());  // Convert the file to byte data and set it in the product
+            setImage(product, file);  // Store the image and keep its hash and type on the product
         }
-        return productDetailsRepository.save(product);
+        ProductDetails saved = productDetailsRepository.save(product);
+        productSearchIndex.index(toSummary(saved));  // Make the new product searchable
+        catalogChanged();
+        return saved;
     }
 
-    public List<ProductDetails> getAllProducts() {
-        return productDetailsRepository.findAll();  // Fetch all products from the database
+    // Method to search products by name and description, optionally within a price range
+    public List<ProductSummaryDTO> searchProducts(String query, Double minPrice, Double maxPrice, int limit) {
+        return productSearchIndex.search(query, minPrice, maxPrice, limit);
+    }
+
+    // Synchronized, so a load still running when a write evicts the listing is dropped by the eviction
+    // instead of putting the old listing back afterwards
+    @Cacheable(value = CacheConfig.PRODUCT_LIST_CACHE, sync = true)
+    public List<ProductSummaryDTO> getAllProducts() {
+        return List.copyOf(productDetailsRepository.findAllSummaries());  // Fetch all products without their images
+    }
+
+    // Method to get one page of products in the given order, `cursor` is null for the first page
+    public ProductPageDTO getProductPage(ProductSort sort, boolean descending, String cursor, int size) {
+        ProductCursor after = cursor == null || cursor.isEmpty() ? null : ProductCursor.decode(cursor, sort, descending);
+        // One extra row tells whether there is a next page without counting the table
+        List<ProductSummaryDTO> rows = productDetailsRepository.findSummaryPage(sort, descending, after, size + 1);
+        if (rows.size() <= size) {
+            return new ProductPageDTO(rows, null);
+        }
+        List<ProductSummaryDTO> page = rows.subList(0, size);
+        return new ProductPageDTO(List.copyOf(page), ProductCursor.after(page.get(size - 1), sort, descending).encode());
+    }
+
+    // Method to get a single product (without its image) by ID
+    @Cacheable(value = CacheConfig.PRODUCTS_CACHE, key = "#id", unless = "#result == null")  // Misses are not cached, the id may be created later
+    public Optional<ProductSummaryDTO> getProduct(Long id) {
+        return productDetailsRepository.findSummaryById(id);
+    }
+
+    // Method to find the stored image file of a product in the requested size.
+    // Works from the (cached) product summary, so serving an image doesn't need the database.
+    public Optional<ProductImageDTO> getProductImage(ProductSummaryDTO product, ImageVariant variant) {
+        String hash = product.getImageHash();
+        Optional<Path> file = hash == null ? Optional.empty() : imageStorage.locate(hash);
+        if (file.isEmpty()) {
+            return Optional.empty();  // Products without an image have nothing to serve
+        }
+        ProductImageDTO image = new ProductImageDTO(hash, product.getImageContentType());
+
+        if (variant != ImageVariant.ORIGINAL) {
+            Optional<Path> rendition = imageStorage.locateDerivative(hash, variant.getKey());
+            if (rendition.isPresent()) {
+                image.setFile(rendition.get());
+                image.setVariant(variant);
+                image.setContentType("image/jpeg");  // Renditions are always JPEG
+                return Optional.of(image);
+            }
+            // Not built yet (or the format cannot be resized), serve the original this time
+            imageDerivativeService.generate(hash, image.getContentType());
+        }
+        image.setFile(file.get());
+        image.setVariant(ImageVariant.ORIGINAL);
+        image.setGzipFile(imageStorage.locateDerivative(hash, ImageDerivativeService.GZIP).orElse(null));
+        return Optional.of(image);
     }
 
     // Method to update an existing product by ID
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#id")
     public Optional<ProductDetails> updateProduct(Long id, String name, double price, String description, MultipartFile file) throws IOException {
         Optional<ProductDetails> existingProduct = productDetailsRepository.findById(id);  // Find the product by its ID
 
@@ -48,21 +132,63 @@ public class AdminService {
             product.setDescription(description);  // Update description
 
             if (file != null && !file.isEmpty()) {
-                product.setImageData(file.getBytes());  // Convert the file to byte data and update
+                setImage(product, file);  // Replace the image, its hash and its type
             }
 
             // Save the updated product to the database and return the updated product
-            return Optional.of(productDetailsRepository.save(product));
+            ProductDetails saved = productDetailsRepository.save(product);
+            productSearchIndex.index(toSummary(saved));  // Re-index the new name and description
+            catalogChanged();
+            return Optional.of(saved);
         }
         return Optional.empty();  // If the product doesn't exist, return an empty result
     }
 
+    // Method to change some fields of a product without loading it, returns false if the product doesn't exist
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#id")
+    public boolean patchProduct(Long id, ProductPatchDTO patch) {
+        if (productDetailsRepository.patchProduct(id, patch) == 0) {
+            return false;
+        }
+        productDetailsRepository.findSummaryById(id).ifPresent(productSearchIndex::index);  // The patch only holds the changed fields
+        catalogChanged();
+        return true;
+    }
+
     // Method to delete a product by its ID
+    @CacheEvict(value = CacheConfig.PRODUCTS_CACHE, key = "#id")
     public boolean deleteProduct(Long id) {
         if (productDetailsRepository.existsById(id)) {
             productDetailsRepository.deleteById(id);
+            productSearchIndex.remove(id);
+            catalogChanged();
             return true;
         }
         return false;
     }
+
+    // Evict the cached listing, then move the catalog version on. In the other order a listing request in between
+    // would get the new ETag with the old cached listing, and keep getting 304s for it until the next write.
+    private void catalogChanged() {
+        Cache listCache = cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE);
+        if (listCache != null) {
+            listCache.evict(CacheConfig.PRODUCT_LIST_KEY);
+        }
+        catalogVersion.bump();
+    }
+
+    private static ProductSummaryDTO toSummary(ProductDetails product) {
+        return new ProductSummaryDTO(product.getId(), product.getName(), product.getPrice(), product.getDescription(),
+                product.getImageHash(), product.getImageContentType());
+    }
+
+    // Put the uploaded image into the image storage and record its hash and content type on the product
+    private void setImage(ProductDetails product, MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {  // Streamed, the upload is never loaded into memory as a whole
+            product.setImageHash(imageStorage.store(in).getHash());
+        }
+        product.setImageContentType(file.getContentType());
+        product.setImageData(null);  // Drop any image left over from before the storage migration
+        imageDerivativeService.generate(product.getImageHash(), product.getImageContentType());  // Thumbnails are built in the background
+    }
 }
@@ -0,0 +1,52 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Version of the product catalog, bumped by every write to product_details.
+// The product listing uses it as its ETag and Last-Modified, so a client that already has
+// the current listing gets a 304 without the catalog being loaded at all.
+@Component
+public class CatalogVersion {
+
+    // Start value differs per process, so versions handed out before a restart are never reused
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, currentSecond()));
+
+    // Called after the catalog changed
+    public void bump() {
+        current.updateAndGet(previous -> new Snapshot(previous.number + 1, currentSecond()));
+    }
+
+    // Read the version before reading the catalog, so the ETag is never newer than the content it describes
+    public Snapshot current() {
+        return current.get();
+    }
+
+    // HTTP dates only have second precision
+    private static long currentSecond() {
+        return System.currentTimeMillis() / 1000 * 1000;
+    }
+
+    public final class Snapshot {
+
+        private final long number;
+        private final long lastModified;
+
+        private Snapshot(long number, long lastModified) {
+            this.number = number;
+            this.lastModified = lastModified;
+        }
+
+        // Weak, the listing is the same data but not necessarily the same bytes (e.g. JSON field order)
+        public String getETag() {
+            return "W/\"" + epoch + "-" + number + "\"";
+        }
+
+        // Time of the last change in epoch milliseconds
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.storage.ImageStorage;
+import com.nsbm.autovault.adminmodule.storage.ImageVariant;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+// Builds the thumbnail and medium renditions of product images, plus a gzip copy of
+// images in formats that compress well, on a small background thread pool.
+// Work is fed by AdminService after an upload and by the image endpoint when a rendition is missing,
+// so images stored before this pipeline existed are converted the first time they are requested.
+@Service
+public class ImageDerivativeService {
+
+    // Derivative name of the gzip copy of the original image
+    public static final String GZIP = "gz";
+    // Empty derivative marking an image that gets no renditions (a format ImageIO cannot decode, or too many pixels),
+    // so that it is served as it is without being read again on every request
+    public static final String NO_RENDITIONS = "norenditions";
+
+    private static final Logger log = LoggerFactory.getLogger(ImageDerivativeService.class);
+    private static final float JPEG_QUALITY = 0.85f;
+    // Formats ImageIO stores without (or with weak) compression, only these get a gzip copy
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+            "image/svg+xml", "image/bmp", "image/x-ms-bmp", "image/tiff", "image/x-icon", "image/vnd.microsoft.icon");
+
+    private final ImageStorage imageStorage;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();  // Hashes queued or being processed
+    private final long maxPixels;
+
+    public ImageDerivativeService(ImageStorage imageStorage,
+                                  @Value("${autovault.images.derivatives.threads:2}") int threads,
+                                  @Value("${autovault.images.derivatives.queue-capacity:100}") int queueCapacity,
+                                  @Value("${autovault.images.derivatives.max-pixels:25000000}") long maxPixels) {
+        this.imageStorage = imageStorage;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadNumber = new AtomicInteger();
+        // A bounded queue keeps a burst of uploads from piling up decoded images in memory.
+        // Work that does not fit is dropped and picked up again the next time the image is requested.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-derivatives-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Queue the image with the given hash for processing, does nothing if it is already queued
+    // or known to get no renditions
+    public void generate(String hash, String contentType) {
+        if (hash == null || imageStorage.locateDerivative(hash, NO_RENDITIONS).isPresent() || !inProgress.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateNow(hash, contentType);
+                } catch (Exception e) {
+                    log.warn("Could not build the renditions of image {}", hash, e);
+                } finally {
+                    inProgress.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inProgress.remove(hash);
+            log.debug("Derivative queue is full, skipping image {}", hash);
+        }
+    }
+
+    private void generateNow(String hash, String contentType) throws IOException {
+        Optional<Path> original = imageStorage.locate(hash);
+        if (original.isEmpty()) {
+            return;
+        }
+
+        if (contentType != null && COMPRESSIBLE_TYPES.contains(contentType)
+                && imageStorage.locateDerivative(hash, GZIP).isEmpty()) {
+            storeGzip(hash, original.get());
+        }
+
+        BufferedImage image = read(hash, original.get());
+        if (image == null) {
+            // The original is served for every size from now on
+            imageStorage.storeDerivative(hash, NO_RENDITIONS, new ByteArrayInputStream(new byte[0]));
+            return;
+        }
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (variant == ImageVariant.ORIGINAL || imageStorage.locateDerivative(hash, variant.getKey()).isPresent()) {
+                continue;
+            }
+            byte[] jpeg = toJpeg(scale(image, variant.getMaxDimension()));
+            imageStorage.storeDerivative(hash, variant.getKey(), new ByteArrayInputStream(jpeg));
+        }
+    }
+
+    // Decode the image, or return null if ImageIO cannot (e.g. SVG) or it has more than maxPixels.
+    // The size is read from the header first, a small file can claim dimensions that don't fit in memory.
+    private BufferedImage read(String hash, Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.info("Image {} has {} pixels, more than the {} renditions are built for", hash, pixels, maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } catch (IIOException e) {
+                log.info("Image {} cannot be decoded: {}", hash, e.getMessage());
+                return null;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Resize so the longest side fits maxDimension, images that are already small are only re-encoded
+    private static BufferedImage scale(BufferedImage image, int maxDimension) {
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);  // JPEG has no transparency, flatten onto white
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private static byte[] toJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private void storeGzip(String hash, Path original) throws IOException {
+        Path tempFile = imageStorage.createTempFile(hash);
+        try {
+            try (InputStream in = Files.newInputStream(original);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+                in.transferTo(out);
+            }
+            // Only worth keeping when it saves a meaningful amount of bytes
+            if (Files.size(tempFile) < Files.size(original) * 0.9) {
+                try (InputStream in = Files.newInputStream(tempFile)) {
+                    imageStorage.storeDerivative(hash, GZIP, in);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
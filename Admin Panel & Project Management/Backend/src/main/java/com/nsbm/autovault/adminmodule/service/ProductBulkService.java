@@ -0,0 +1,300 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nsbm.autovault.adminmodule.dto.ImportReportDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.nsbm.autovault.adminmodule.config.CacheConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Imports and exports the product catalog in bulk as NDJSON (one JSON object per line) or CSV.
+// Both directions stream: rows are read, validated and written chunk by chunk,
+// so memory use does not depend on the size of the catalog.
+@Service
+public class ProductBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBulkService.class);
+    private static final int EXPORT_CHUNK_SIZE = 1000;
+    private static final int MAX_TEXT_LENGTH = 255;  // Length of the name and description columns
+
+    private static final String INSERT_SQL = "INSERT INTO product_details (name, price, description) VALUES (?, ?, ?)";
+    private static final String EXPORT_SQL = "SELECT id, name, price, description, image_hash FROM product_details " +
+            "WHERE id > ? ORDER BY id LIMIT ?";
+
+    // Supported file formats
+    public enum Format {
+        NDJSON, CSV;
+
+        // Pick the format from a content type or a ?format= parameter
+        public static Format of(String value) {
+            String lower = value == null ? "" : value.toLowerCase(Locale.ROOT);
+            if (lower.contains("csv")) {
+                return CSV;
+            }
+            if (lower.contains("ndjson") || lower.contains("json")) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Unsupported format: " + value + " (use NDJSON or CSV)");
+        }
+    }
+
+    // Receives progress while an import runs
+    public interface ImportListener {
+        void onRowError(long line, String message) throws IOException;
+
+        void onProgress(ImportReportDTO report) throws IOException;
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final CacheManager cacheManager;
+    private final ProductSearchIndex productSearchIndex;
+    private final CatalogVersion catalogVersion;
+    private final int batchSize;
+
+    public ProductBulkService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, ObjectMapper objectMapper,
+                              CacheManager cacheManager, ProductSearchIndex productSearchIndex, CatalogVersion catalogVersion,
+                              @Value("${autovault.products.import.batch-size}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.productSearchIndex = productSearchIndex;
+        this.catalogVersion = catalogVersion;
+        this.batchSize = batchSize;
+    }
+
+    // Read products from the stream and insert the valid ones in JDBC batches.
+    // Each batch is committed on its own, rows from earlier batches stay imported if a later one fails.
+    public ImportReportDTO importProducts(InputStream in, Format format, ImportListener listener) throws IOException {
+        ImportReportDTO report = new ImportReportDTO();
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        Map<String, Integer> csvColumns = null;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            long rowLine = lineNumber;
+            if (format == Format.CSV) {
+                // A quoted value may contain line breaks, keep reading until its closing quote
+                String next;
+                while (hasOpenQuote(line) && (next = reader.readLine()) != null) {
+                    lineNumber++;
+                    line = line + "\n" + next;
+                }
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && csvColumns == null) {
+                csvColumns = readCsvHeader(line);  // The first line names the columns
+                continue;
+            }
+
+            report.setProcessed(report.getProcessed() + 1);
+            try {
+                batch.add(format == Format.CSV ? parseCsvRow(line, csvColumns) : parseJsonRow(line));
+            } catch (IllegalArgumentException e) {
+                report.setFailed(report.getFailed() + 1);
+                listener.onRowError(rowLine, e.getMessage());
+            }
+
+            if (batch.size() >= batchSize) {
+                flush(batch, report);
+                listener.onProgress(report);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, report);
+        }
+        if (report.getImported() > 0) {
+            productSearchIndex.rebuild();  // Batch inserts don't return the new ids, reload the index once at the end
+        }
+        listener.onProgress(report);
+        log.info("Product import finished: {} rows processed, {} imported, {} failed",
+                report.getProcessed(), report.getImported(), report.getFailed());
+        return report;
+    }
+
+    private void flush(List<Object[]> batch, ImportReportDTO report) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+        report.setImported(report.getImported() + batch.size());
+        Cache listCache = cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE);
+        if (listCache != null) {
+            listCache.evict(CacheConfig.PRODUCT_LIST_KEY);  // Only new products are added, cached single products stay valid
+        }
+        catalogVersion.bump();
+        log.debug("Imported {} products so far", report.getImported());
+        batch.clear();
+    }
+
+    // Write every product to the stream. Rows are fetched by id ranges (keyset),
+    // each chunk costs the same no matter how deep into the table it is.
+    public void exportProducts(OutputStream out, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writer.write("id,name,price,description,imageHash\n");
+        }
+
+        long lastId = 0;
+        while (true) {
+            List<ProductSummaryDTO> chunk = jdbcTemplate.query(EXPORT_SQL,
+                    (rs, rowNum) -> new ProductSummaryDTO(rs.getLong("id"), rs.getString("name"), rs.getDouble("price"),
+                            rs.getString("description"), rs.getString("image_hash")),
+                    lastId, EXPORT_CHUNK_SIZE);
+            for (ProductSummaryDTO product : chunk) {
+                if (format == Format.CSV) {
+                    writer.write(product.getId() + "," + csv(product.getName()) + "," + product.getPrice() + ","
+                            + csv(product.getDescription()) + "," + csv(product.getImageHash()) + "\n");
+                } else {
+                    writer.write(objectMapper.writeValueAsString(product));
+                    writer.write('\n');
+                }
+            }
+            writer.flush();  // Hand each chunk to the client instead of buffering the whole export
+            if (chunk.size() < EXPORT_CHUNK_SIZE) {
+                break;
+            }
+            lastId = chunk.get(chunk.size() - 1).getId();
+        }
+    }
+
+    private Object[] parseJsonRow(String line) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid JSON");
+        }
+        if (node == null || !node.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        return toRow(text(node, "name"), text(node, "price"), text(node, "description"));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static Map<String, Integer> readCsvHeader(String line) {
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(line);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("name") || !columns.containsKey("price")) {
+            throw new IllegalArgumentException("CSV header must contain the columns name and price");
+        }
+        return columns;
+    }
+
+    private static Object[] parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        return toRow(column(values, columns, "name"), column(values, columns, "price"), column(values, columns, "description"));
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= values.size() ? null : values.get(index);
+    }
+
+    // Validate one product and turn it into the parameters of INSERT_SQL
+    private static Object[] toRow(String name, String price, String description) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        if (name.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("name is longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+        if (description != null && description.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("description is longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+        double parsedPrice;
+        try {
+            parsedPrice = Double.parseDouble(price);
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException("price must be a number");
+        }
+        if (parsedPrice < 0 || Double.isNaN(parsedPrice) || Double.isInfinite(parsedPrice)) {
+            throw new IllegalArgumentException("price must be zero or more");
+        }
+        return new Object[]{name, parsedPrice, description};
+    }
+
+    // Split one CSV row, supporting quoted values with "" as an escaped quote and line breaks inside quotes
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // True if the text ends inside a quoted value, i.e. it has an odd number of quotes ("" counts twice)
+    private static boolean hasOpenQuote(String text) {
+        boolean open = false;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                open = !open;
+            }
+        }
+        return open;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,483 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
+import com.nsbm.autovault.adminmodule.repo.ProductDetailsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+// In-memory inverted index over the name and description of every product.
+// It is built from the database on startup and kept up to date by AdminService,
+// so searching never touches the database. Changes made while a rebuild is loading are replayed on the new index
+// before it is swapped in, so a rebuild never loses them.
+//
+// Matching, per query word:
+//  - exact word match (full score)
+//  - prefix match, so "toy" finds "toyota" (reduced score)
+//  - one typo (insert, delete, replace or swap of a letter) for words of 4+ letters (lowest score)
+// Every query word has to match. Results are ranked by the sum of the word scores, weighted by
+// how rare the matched word is (idf) and by the field it was found in (name counts more than description).
+//
+// Products are numbered with dense "slots" so postings and scores are plain int/float arrays;
+// a search over a few hundred thousand products only walks primitive arrays and allocates almost nothing.
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float TYPO_FACTOR = 0.4f;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;  // Caps the work a very short prefix can cause
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    private final ProductDetailsRepository productDetailsRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<>();
+
+    // Guarded by lock, replaced as a whole by rebuild()
+    private Index index = new Index();
+    // Guarded by lock, the changes made since a running rebuild started loading, null when no rebuild is running
+    private List<Consumer<Index>> changesDuringRebuild;
+
+    public ProductSearchIndex(ProductDetailsRepository productDetailsRepository) {
+        this.productDetailsRepository = productDetailsRepository;
+    }
+
+    // Load every product from the database once the application (and the image migration) is ready.
+    // One rebuild at a time, a second one waits for the first.
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        setChangesDuringRebuild(new ArrayList<>());
+
+        // Build a fresh index and swap it in, searches keep using the old one in the meantime
+        Index fresh = new Index();
+        List<ProductSummaryDTO> products;
+        try {
+            products = productDetailsRepository.findAllSummaries();
+            for (ProductSummaryDTO product : products) {
+                fresh.add(product);
+            }
+        } catch (RuntimeException e) {
+            setChangesDuringRebuild(null);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            // The load may or may not have seen these changes, replaying them is harmless either way
+            changesDuringRebuild.forEach(change -> change.accept(fresh));
+            changesDuringRebuild = null;
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Indexed {} products for search in {} ms", products.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // Add a product, or replace it if it is already indexed
+    public void index(ProductSummaryDTO product) {
+        apply(current -> {
+            current.remove(product.getId());
+            current.add(product);
+        });
+    }
+
+    // Remove a product from the index
+    public void remove(Long id) {
+        apply(current -> current.remove(id));
+    }
+
+    // Change the current index, and remember the change for the index a running rebuild is loading
+    private void apply(Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setChangesDuringRebuild(List<Consumer<Index>> changes) {
+        lock.writeLock().lock();
+        try {
+            changesDuringRebuild = changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Find the best matching products, optionally limited to a price range (bounds may be null).
+    // Without query words the products in the price range are returned by id.
+    public List<ProductSummaryDTO> search(String query, Double minPrice, Double maxPrice, int limit) {
+        List<String> words = tokenize(query);
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        lock.readLock().lock();
+        try {
+            Index current = index;
+            return words.isEmpty()
+                    ? current.filterByPrice(min, max, limit)
+                    : current.search(words, min, max, limit, scratch(current.capacity()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Per-thread score arrays, reused between searches so a query doesn't allocate arrays the size of the catalog
+    private Scratch scratch(int capacity) {
+        Scratch current = scratch.get();
+        if (current == null || current.total.length < capacity) {
+            current = new Scratch(Math.max(capacity, 1024));
+            scratch.set(current);
+        }
+        return current;
+    }
+
+    private static final class Scratch {
+        final float[] total;      // Summed score per slot
+        final float[] wordBest;   // Best score of the current query word per slot
+        final int[] matchedWords; // Number of query words matched per slot
+        final int[] touched;      // Slots with a non-zero total, so only those are reset afterwards
+        final int[] wordTouched;  // Slots with a non-zero wordBest
+        int touchedCount;
+        int wordTouchedCount;
+
+        Scratch(int capacity) {
+            total = new float[capacity];
+            wordBest = new float[capacity];
+            matchedWords = new int[capacity];
+            touched = new int[capacity];
+            wordTouched = new int[capacity];
+        }
+
+        void reset() {
+            for (int i = 0; i < wordTouchedCount; i++) {
+                wordBest[wordTouched[i]] = 0;
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                total[touched[i]] = 0;
+                matchedWords[touched[i]] = 0;
+            }
+            wordTouchedCount = 0;
+            touchedCount = 0;
+        }
+    }
+
+    // The products matching one word: parallel arrays of slots and field weights, in no particular order
+    private static final class Postings {
+        int[] slots = new int[4];
+        float[] weights = new float[4];
+        int size;
+
+        void add(int slot, float weight) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            slots[size] = slot;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];  // Order doesn't matter, move the last entry into the gap
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Index {
+        private final Map<Long, Integer> slotsById = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();  // Slots of deleted products, reused first
+        private ProductSummaryDTO[] products = new ProductSummaryDTO[1024];
+        private String[][] wordsBySlot = new String[1024][];  // Needed to remove a product again
+        private int capacity;  // Highest slot in use + 1
+
+        private final TreeMap<String, Postings> postings = new TreeMap<>();
+        private final Map<String, Set<String>> typoVariants = new HashMap<>();  // Word with one letter deleted -> words
+
+        int capacity() {
+            return capacity;
+        }
+
+        void add(ProductSummaryDTO product) {
+            Map<String, Float> weights = new HashMap<>();
+            for (String word : tokenize(product.getName())) {
+                weights.merge(word, NAME_WEIGHT, Float::sum);
+            }
+            for (String word : tokenize(product.getDescription())) {
+                weights.merge(word, DESCRIPTION_WEIGHT, Float::sum);
+            }
+
+            int slot = freeSlots.isEmpty() ? capacity++ : freeSlots.pop();
+            if (slot == products.length) {
+                products = Arrays.copyOf(products, slot * 2);
+                wordsBySlot = Arrays.copyOf(wordsBySlot, slot * 2);
+            }
+            products[slot] = product;
+            wordsBySlot[slot] = weights.keySet().toArray(new String[0]);
+            slotsById.put(product.getId(), slot);
+
+            for (Map.Entry<String, Float> entry : weights.entrySet()) {
+                String word = entry.getKey();
+                Postings list = postings.get(word);
+                if (list == null) {
+                    list = new Postings();
+                    postings.put(word, list);
+                    if (word.length() >= MIN_TYPO_LENGTH - 1) {
+                        for (String variant : deletions(word)) {
+                            typoVariants.computeIfAbsent(variant, key -> new HashSet<>()).add(word);
+                        }
+                    }
+                }
+                list.add(slot, entry.getValue());
+            }
+        }
+
+        void remove(Long id) {
+            Integer slot = slotsById.remove(id);
+            if (slot == null) {
+                return;
+            }
+            for (String word : wordsBySlot[slot]) {
+                Postings list = postings.get(word);
+                list.remove(slot);
+                if (list.size == 0) {
+                    // Last product using this word, forget the word and its typo variants
+                    postings.remove(word);
+                    for (String variant : deletions(word)) {
+                        Set<String> words = typoVariants.get(variant);
+                        if (words != null) {
+                            words.remove(word);
+                            if (words.isEmpty()) {
+                                typoVariants.remove(variant);
+                            }
+                        }
+                    }
+                }
+            }
+            products[slot] = null;
+            wordsBySlot[slot] = null;
+            freeSlots.push(slot);
+        }
+
+        List<ProductSummaryDTO> search(List<String> words, double min, double max, int limit, Scratch scratch) {
+            float documentCount = Math.max(1, slotsById.size());
+            try {
+                for (int w = 0; w < words.size(); w++) {
+                    // Best score of this word per product, a word can match several terms ("car" and "cars")
+                    for (Map.Entry<String, Float> match : matchingTerms(words.get(w)).entrySet()) {
+                        Postings list = postings.get(match.getKey());
+                        float factor = match.getValue() * (float) Math.log(1.0 + documentCount / list.size);
+                        for (int i = 0; i < list.size; i++) {
+                            int slot = list.slots[i];
+                            if (scratch.matchedWords[slot] != w) {
+                                continue;  // Missed an earlier word, can't match all of them any more
+                            }
+                            float score = list.weights[i] * factor;
+                            if (scratch.wordBest[slot] == 0) {
+                                scratch.wordTouched[scratch.wordTouchedCount++] = slot;
+                                scratch.wordBest[slot] = score;
+                            } else if (score > scratch.wordBest[slot]) {
+                                scratch.wordBest[slot] = score;
+                            }
+                        }
+                    }
+                    if (scratch.wordTouchedCount == 0) {
+                        return List.of();
+                    }
+                    for (int i = 0; i < scratch.wordTouchedCount; i++) {
+                        int slot = scratch.wordTouched[i];
+                        if (scratch.matchedWords[slot] == 0) {
+                            scratch.touched[scratch.touchedCount++] = slot;
+                        }
+                        scratch.total[slot] += scratch.wordBest[slot];
+                        scratch.matchedWords[slot]++;
+                        scratch.wordBest[slot] = 0;
+                    }
+                    scratch.wordTouchedCount = 0;
+                }
+                return topResults(words.size(), min, max, limit, scratch);
+            } finally {
+                scratch.reset();
+            }
+        }
+
+        // Pick the best `limit` products that matched every word, keeping a small sorted array
+        private List<ProductSummaryDTO> topResults(int wordCount, double min, double max, int limit, Scratch scratch) {
+            int[] best = new int[limit];
+            int found = 0;
+            for (int i = 0; i < scratch.touchedCount; i++) {
+                int slot = scratch.touched[i];
+                if (scratch.matchedWords[slot] != wordCount) {
+                    continue;
+                }
+                double price = products[slot].getPrice();
+                if (price < min || price > max) {
+                    continue;
+                }
+                if (found == limit && !ranksHigher(slot, best[limit - 1], scratch.total)) {
+                    continue;
+                }
+                int position = found < limit ? found++ : limit - 1;
+                while (position > 0 && ranksHigher(slot, best[position - 1], scratch.total)) {
+                    best[position] = best[position - 1];
+                    position--;
+                }
+                best[position] = slot;
+            }
+            List<ProductSummaryDTO> results = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                results.add(products[best[i]]);
+            }
+            return results;
+        }
+
+        // Higher score first, lower id first on a tie so results are stable
+        private boolean ranksHigher(int slot, int other, float[] scores) {
+            if (scores[slot] != scores[other]) {
+                return scores[slot] > scores[other];
+            }
+            return products[slot].getId() < products[other].getId();
+        }
+
+        List<ProductSummaryDTO> filterByPrice(double min, double max, int limit) {
+            List<ProductSummaryDTO> matches = new ArrayList<>();
+            for (int slot = 0; slot < capacity; slot++) {
+                ProductSummaryDTO product = products[slot];
+                if (product != null && product.getPrice() >= min && product.getPrice() <= max) {
+                    matches.add(product);
+                }
+            }
+            matches.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        }
+
+        // Indexed words matching a query word, with the factor of the kind of match
+        private Map<String, Float> matchingTerms(String word) {
+            Map<String, Float> matches = new HashMap<>();
+            if (word.length() >= MIN_PREFIX_LENGTH) {
+                SortedMap<String, Postings> prefixed = postings.subMap(word, word + Character.MAX_VALUE);
+                int expansions = 0;
+                for (String term : prefixed.keySet()) {
+                    if (++expansions > MAX_PREFIX_EXPANSIONS) {
+                        break;
+                    }
+                    matches.put(term, term.equals(word) ? 1.0f : PREFIX_FACTOR);
+                }
+            } else if (postings.containsKey(word)) {
+                matches.put(word, 1.0f);
+            }
+
+            if (word.length() >= MIN_TYPO_LENGTH) {
+                // Two words are one edit apart when they share a "one letter deleted" variant (or one is a variant of the other)
+                Set<String> candidates = new HashSet<>();
+                addAll(candidates, typoVariants.get(word));
+                for (String variant : deletions(word)) {
+                    addAll(candidates, typoVariants.get(variant));
+                    if (postings.containsKey(variant)) {
+                        candidates.add(variant);
+                    }
+                }
+                for (String candidate : candidates) {
+                    if (!matches.containsKey(candidate) && isOneEditApart(word, candidate)) {
+                        matches.put(candidate, TYPO_FACTOR);
+                    }
+                }
+            }
+            return matches;
+        }
+    }
+
+    // Split text into lower case words made of letters and digits
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    // All strings made by deleting one character from the word
+    private static Set<String> deletions(String word) {
+        Set<String> variants = new HashSet<>();
+        for (int i = 0; i < word.length(); i++) {
+            variants.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        return variants;
+    }
+
+    // True if a and b differ by one insert, delete, replace or swap of two neighbouring characters
+    private static boolean isOneEditApart(String a, String b) {
+        if (a.equals(b) || Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        if (a.length() == b.length()) {
+            int first = -1;
+            int differences = 0;
+            for (int i = 0; i < a.length(); i++) {
+                if (a.charAt(i) != b.charAt(i) && ++differences == 1) {
+                    first = i;
+                }
+            }
+            if (differences == 1) {
+                return true;  // Replace
+            }
+            return differences == 2 && first + 1 < a.length()
+                    && a.charAt(first) == b.charAt(first + 1) && a.charAt(first + 1) == b.charAt(first);  // Swap
+        }
+        String shorter = a.length() < b.length() ? a : b;
+        String longer = shorter == a ? b : a;
+        int i = 0;
+        while (i < shorter.length() && shorter.charAt(i) == longer.charAt(i)) {
+            i++;
+        }
+        return shorter.substring(i).equals(longer.substring(i + 1));  // Insert or delete
+    }
+
+    private static void addAll(Set<String> target, Set<String> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.nsbm.autovault.adminmodule.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+// Keeps product images on the local filesystem, one file per distinct image.
+// Files are spread over sub directories using the first characters of the hash (ab/cd/abcd...)
+// so no single directory grows too large.
+@Component
+public class FileSystemImageStorage implements ImageStorage {
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+    private static final Pattern DERIVATIVE_NAME_PATTERN = Pattern.compile("[a-z0-9]+");
+    // Uploads are copied through a buffer of this size, memory per upload does not depend on the image size
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+
+    public FileSystemImageStorage(@Value("${autovault.images.directory}") String directory) throws IOException {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+        Files.createDirectories(root.resolve("tmp"));  // Uploads are written here first, then moved into place
+    }
+
+    @Override
+    public StoredImage store(InputStream in) throws IOException {
+        // The hash is only known once the whole image has been read, so write to a temporary
+        // file first and move it into place afterwards. Readers never see a half written image.
+        Path tempFile = Files.createTempFile(root.resolve("tmp"), "upload", ".part");
+        try {
+            MessageDigest digest = newSha256();
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathFor(hash);
+            if (!Files.exists(target)) {
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Another upload of the same image finished first, the content is identical
+                }
+            }
+            // Otherwise the same image is already stored and the temporary file is simply dropped
+            return new StoredImage(hash, size);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public Optional<Path> locate(String hash) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = pathFor(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public void storeDerivative(String hash, String name, InputStream in) throws IOException {
+        Path target = derivativePathFor(hash, name);
+        Files.createDirectories(target.getParent());
+        Path tempFile = Files.createTempFile(root.resolve("tmp"), hash, ".part");
+        try {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public Optional<Path> locateDerivative(String hash, String name) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return Optional.empty();
+        }
+        Path path = derivativePathFor(hash, name);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    @Override
+    public Path createTempFile(String prefix) throws IOException {
+        return Files.createTempFile(root.resolve("tmp"), prefix, ".part");
+    }
+
+    // Derived files sit next to the original: abcd... -> abcd....thumbnail
+    private Path derivativePathFor(String hash, String name) {
+        if (!DERIVATIVE_NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid derivative name: " + name);
+        }
+        return pathFor(hash).resolveSibling(hash + "." + name);
+    }
+
+    private Path pathFor(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);  // Every JVM is required to provide SHA-256
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.nsbm.autovault.adminmodule.storage;
+
+import com.nsbm.autovault.adminmodule.config.CacheConfig;
+import com.nsbm.autovault.adminmodule.model.ProductDetails;
+import com.nsbm.autovault.adminmodule.repo.ProductDetailsRepository;
+import com.nsbm.autovault.adminmodule.service.CatalogVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.util.List;
+
+// One-time migration that moves images still stored in the ProductDetails.imageData column
+// into the ImageStorage. It runs on every startup but only does work while old rows are left.
+@Component
+public class ImageBlobMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageBlobMigration.class);
+    private static final int BATCH_SIZE = 50;
+
+    private final ProductDetailsRepository productDetailsRepository;
+    private final ImageStorage imageStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+    private final CatalogVersion catalogVersion;
+
+    public ImageBlobMigration(ProductDetailsRepository productDetailsRepository, ImageStorage imageStorage,
+                              TransactionTemplate transactionTemplate, CacheManager cacheManager,
+                              CatalogVersion catalogVersion) {
+        this.productDetailsRepository = productDetailsRepository;
+        this.imageStorage = imageStorage;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+        this.catalogVersion = catalogVersion;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int migrated = 0;
+        List<Long> ids;
+        while (!(ids = productDetailsRepository.findIdsWithImageData(PageRequest.of(0, BATCH_SIZE))).isEmpty()) {
+            for (Long id : ids) {
+                // One transaction per product so only one BLOB is held in memory at a time
+                transactionTemplate.executeWithoutResult(status -> migrate(id));
+                migrated++;
+            }
+        }
+        if (migrated > 0) {
+            // Image hashes changed, drop anything cached while the migration was running
+            Cache listCache = cacheManager.getCache(CacheConfig.PRODUCT_LIST_CACHE);
+            if (listCache != null) {
+                listCache.evict(CacheConfig.PRODUCT_LIST_KEY);
+            }
+            Cache productsCache = cacheManager.getCache(CacheConfig.PRODUCTS_CACHE);
+            if (productsCache != null) {
+                productsCache.clear();
+            }
+            catalogVersion.bump();
+            log.info("Moved {} product images from the database to the image storage", migrated);
+        }
+    }
+
+    private void migrate(Long id) {
+        ProductDetails product = productDetailsRepository.findById(id).orElse(null);
+        if (product == null || product.getImageData() == null) {
+            return;  // Deleted or migrated in the meantime
+        }
+        byte[] imageData = product.getImageData();
+        try {
+            product.setImageHash(imageStorage.store(new ByteArrayInputStream(imageData)).getHash());
+            if (product.getImageContentType() == null) {
+                // Rows saved before the content type was recorded, guess it from the image header
+                product.setImageContentType(URLConnection.guessContentTypeFromStream(new ByteArrayInputStream(imageData)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not migrate the image of product " + id, e);
+        }
+        product.setImageData(null);
+    }
+}
@@ -0,0 +1,56 @@
+package com.nsbm.autovault.adminmodule.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes a stored image file to the HTTP response without copying it through the heap.
+@Component
+public class ImageResponseWriter {
+
+    // Request attributes Tomcat uses to hand a file over to the connector's sendfile support
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    public void write(Path file, String contentType, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        write(file, contentType, null, request, response);
+    }
+
+    // Write a file that is already encoded (e.g. gzip), the encoding is passed on in Content-Encoding
+    public void write(Path file, String contentType, String contentEncoding,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long size = Files.size(file);
+        response.setContentType(contentType != null ? contentType : "application/octet-stream");
+        response.setContentLengthLong(size);
+        if (contentEncoding != null) {
+            response.setHeader("Content-Encoding", contentEncoding);
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Let Tomcat send the file with sendfile once the request completes
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            return;
+        }
+
+        // Fallback for connectors without sendfile (e.g. TLS): let the channel do the copy
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, out);
+            }
+        }
+    }
+}
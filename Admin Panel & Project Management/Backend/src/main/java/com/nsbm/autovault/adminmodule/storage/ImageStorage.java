@@ -0,0 +1,28 @@
+package com.nsbm.autovault.adminmodule.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Storage backend for product images.
+// Images are content addressed: the key of an image is the SHA-256 of its bytes,
+// so uploading the same image twice only stores it once.
+public interface ImageStorage {
+
+    // Store the image read from the stream and return its hash and size.
+    // Implementations must not buffer the whole image in memory.
+    StoredImage store(InputStream in) throws IOException;
+
+    // Find the file holding the image with the given hash, if it is stored
+    Optional<Path> locate(String hash);
+
+    // Store a file derived from the image with the given hash (a thumbnail, a compressed copy...)
+    void storeDerivative(String hash, String name, InputStream in) throws IOException;
+
+    // Find a derived file previously stored with storeDerivative
+    Optional<Path> locateDerivative(String hash, String name);
+
+    // Create an empty scratch file on the same disk as the images, the caller deletes it when done
+    Path createTempFile(String prefix) throws IOException;
+}
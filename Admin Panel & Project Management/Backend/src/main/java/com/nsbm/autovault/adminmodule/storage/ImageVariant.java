@@ -0,0 +1,39 @@
+package com.nsbm.autovault.adminmodule.storage;
+
+import java.util.Locale;
+
+// The renditions of a product image that can be requested from the image endpoint
+public enum ImageVariant {
+
+    THUMBNAIL("thumbnail", 320), // Catalog tiles
+    MEDIUM("medium", 1024), // Larger previews
+    ORIGINAL("original", 0); // The image exactly as it was uploaded
+
+    private final String key;
+    private final int maxDimension;
+
+    ImageVariant(String key, int maxDimension) {
+        this.key = key;
+        this.maxDimension = maxDimension;
+    }
+
+    // Name of the variant in URLs and in the image storage
+    public String getKey() {
+        return key;
+    }
+
+    // Longest side of the rendition in pixels (0 for the original)
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    // Find the variant for a ?size= request parameter
+    public static ImageVariant fromKey(String key) {
+        for (ImageVariant variant : values()) {
+            if (variant.key.equals(key.toLowerCase(Locale.ROOT))) {
+                return variant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown image size: " + key);
+    }
+}
@@ -0,0 +1,21 @@
+package com.nsbm.autovault.adminmodule.storage;
+
+// Result of putting an image into the ImageStorage
+public class StoredImage {
+
+    private final String hash; // SHA-256 of the image (hex encoded), the key of the image in the storage
+    private final long size; // Number of bytes in the image
+
+    public StoredImage(String hash, long size) {
+        this.hash = hash;
+        this.size = size;
+    }
+    // Get the hash of the image
+    public String getHash() {
+        return hash;
+    }
+    // Get the size of the image in bytes
+    public long getSize() {
+        return size;
+    }
+}
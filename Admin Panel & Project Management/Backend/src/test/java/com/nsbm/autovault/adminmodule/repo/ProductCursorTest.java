@@ -0,0 +1,71 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.nsbm.autovault.adminmodule.dto.ProductSummaryDTO;
+
+/**
+ * Checks that a ProductCursor survives encode and decode for every sort and direction,
+ * and that cursors of another sort order are refused
+ */
+class ProductCursorTest {
+
+	/**
+	 * The name contains the separator of the encoded cursor
+	 */
+	private static final ProductSummaryDTO PRODUCT = new ProductSummaryDTO(42L, "Wheel: 18\" alloy", 199.99, "Alloy wheel", null);
+
+	@ParameterizedTest
+	@EnumSource(ProductSort.class)
+	void roundTripAscending(ProductSort sort) {
+		assertRoundTrip(sort, false);
+	}
+
+	@ParameterizedTest
+	@EnumSource(ProductSort.class)
+	void roundTripDescending(ProductSort sort) {
+		assertRoundTrip(sort, true);
+	}
+
+	@Test
+	void cursorOfAnotherDirectionIsRefused() {
+		String encoded = ProductCursor.after(PRODUCT, ProductSort.PRICE, false).encode();
+
+		assertThatThrownBy(() -> ProductCursor.decode(encoded, ProductSort.PRICE, true))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void cursorOfAnotherSortIsRefused() {
+		String encoded = ProductCursor.after(PRODUCT, ProductSort.PRICE, false).encode();
+
+		assertThatThrownBy(() -> ProductCursor.decode(encoded, ProductSort.NAME, false))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void malformedCursorIsRefused() {
+		assertThatThrownBy(() -> ProductCursor.decode("not a cursor!", ProductSort.ID, false))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static void assertRoundTrip(ProductSort sort, boolean descending) {
+		ProductCursor cursor = ProductCursor.after(PRODUCT, sort, descending);
+
+		ProductCursor decoded = ProductCursor.decode(cursor.encode(), sort, descending);
+
+		assertThat(decoded.getSort()).isEqualTo(sort);
+		assertThat(decoded.isDescending()).isEqualTo(descending);
+		assertThat(decoded.getId()).isEqualTo(42L);
+		assertThat(decoded.getValue()).isEqualTo(switch (sort) {
+			case ID -> null;
+			case PRICE -> 199.99;
+			case NAME -> "Wheel: 18\" alloy";
+		});
+	}
+}
@@ -159,7 +159,7 @@ export default function App() {
                       className="bg-white p-4 shadow-md rounded-lg flex flex-col items-center text-center"
                     >
                       <img
-                        src={`data:image/jpeg;base64,${product.imageData}`}
+                        src={`http://localhost:8080${product.imageUrl}?size=thumbnail`}
                         alt={product.name}
                         className="w-auto h-38 object-cover rounded mb-auto"
                       />
@@ -14,7 +14,7 @@ export default function ProductList({ products, handleEdit, handleDelete }) {
               className="bg-white p-4 shadow-md rounded-lg flex flex-col items-center text-center"
             >
               <img
-                src={`data:image/jpeg;base64,${product.imageData}`}
+                src={`http://localhost:8080${product.imageUrl}?size=thumbnail`}
                 alt={product.name}
                 className="w-32 h-32 object-cover rounded mb-4"
               />
@@ -0,0 +1,75 @@
+package com.nsbm.autovault.adminmodule.mapper;
+
+import com.nsbm.autovault.adminmodule.dto.ReviewDTO;
+import com.nsbm.autovault.adminmodule.model.Review;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// ModelMapper (what ReviewService used before) against the generated ReviewMapper on the read paths.
+// Run with the jmh profile, see pom.xml. With -prof gc, gc.alloc.rate.norm divided by listSize
+// is the number of bytes allocated per mapped review.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReviewMappingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int listSize;
+
+    private List<Review> reviews;
+    private ReviewDTO reviewDTO;
+    private ModelMapper modelMapper;
+    private ReviewMapper reviewMapper;
+
+    @Setup
+    public void setUp() {
+        reviews = new ArrayList<>(listSize);
+        for (int i = 0; i < listSize; i++) {
+            reviews.add(new Review((long) i, "Review comment number " + i, i % 5 + 1, (long) (i % 50),
+                    (long) (i % 1000), LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i), null));
+        }
+        reviewDTO = new ReviewDTO(42, "Great product", 5, 7, 3L, null, null);
+        modelMapper = new ModelMapper();
+        reviewMapper = new ReviewMapperImpl();
+
+        // Both mappers must produce the same DTOs, otherwise the comparison is meaningless
+        List<ReviewDTO> expected = modelMapper.map(reviews, new TypeToken<List<ReviewDTO>>() {}.getType());
+        if (!expected.equals(reviewMapper.toDTOs(reviews))
+                || !modelMapper.map(reviewDTO, Review.class).equals(reviewMapper.toEntity(reviewDTO))) {
+            throw new IllegalStateException("ModelMapper and ReviewMapper produce different results");
+        }
+    }
+
+    @Benchmark
+    public List<ReviewDTO> modelMapperList() {
+        return modelMapper.map(reviews, new TypeToken<List<ReviewDTO>>() {}.getType());
+    }
+
+    @Benchmark
+    public List<ReviewDTO> generatedList() {
+        return reviewMapper.toDTOs(reviews);
+    }
+
+    @Benchmark
+    public Review modelMapperToEntity() {
+        return modelMapper.map(reviewDTO, Review.class);
+    }
+
+    @Benchmark
+    public Review generatedToEntity() {
+        return reviewMapper.toEntity(reviewDTO);
+    }
+}
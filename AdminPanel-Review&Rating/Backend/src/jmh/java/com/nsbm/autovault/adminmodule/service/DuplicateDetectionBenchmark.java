@@ -0,0 +1,95 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Ingest throughput of the duplicate detection (signature plus index lookup and insert, what
+// DuplicateReviewDetector.inspect adds to every review) once storedReviews reviews have gone through the index.
+// Filling the index takes a few minutes at 10M, e.g. -Djmh.args="-f 1 -wi 3 -i 5 DuplicateDetectionBenchmark".
+// The index keeps 2^(tableBits - 1) reviews, so the time per review stays the same however many were stored.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DuplicateDetectionBenchmark {
+
+    private static final String[] WORDS = ("the car drives smooth fast quiet engine seats comfortable price value "
+            + "service dealer delivery fuel economy handling brakes steering tyres paint interior boot space "
+            + "would recommend again great good poor terrible excellent average after months years of use "
+            + "my family loves it warranty repair parts cheap expensive reliable noisy").split(" ");
+
+    @Param({"10000000"})
+    private long storedReviews;
+
+    @Param({"22"})
+    private int tableBits;
+
+    private MinHashIndex index;
+    private long nextId;
+    private String storedComment;
+
+    @State(Scope.Thread)
+    public static class Comments {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new MinHashIndex(16, 4, 4, tableBits, 30);
+        SplittableRandom random = new SplittableRandom(1);
+        for (nextId = 1; nextId <= storedReviews; nextId++) {
+            String comment = comment(random);
+            index.addAndMatch(index.signature(comment), nextId, nextId % 50_000, match -> true);
+            storedComment = comment;
+        }
+    }
+
+    // A review unlike the stored ones, the common case
+    @Benchmark
+    @Threads(1)
+    public MinHashIndex.Match uniqueReview(Comments comments) {
+        return inspect(comment(comments.random));
+    }
+
+    // Nearly a copy of the last stored review, found as a duplicate
+    @Benchmark
+    @Threads(1)
+    public MinHashIndex.Match nearDuplicate(Comments comments) {
+        return inspect(storedComment + " " + WORDS[comments.random.nextInt(WORDS.length)]);
+    }
+
+    // Reviews arriving from several request threads at once
+    @Benchmark
+    @Threads(4)
+    public MinHashIndex.Match uniqueReviewConcurrent(Comments comments) {
+        return inspect(comment(comments.random));
+    }
+
+    private MinHashIndex.Match inspect(String comment) {
+        long id;
+        synchronized (this) {
+            id = nextId++;
+        }
+        return index.addAndMatch(index.signature(comment), id, id % 50_000, match -> true);
+    }
+
+    // 20 to 40 random words, about 150 characters like a typical review
+    private static String comment(SplittableRandom random) {
+        int words = 20 + random.nextInt(21);
+        StringBuilder comment = new StringBuilder(words * 8);
+        for (int i = 0; i < words; i++) {
+            comment.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return comment.toString();
+    }
+}
@@ -1,9 +1,7 @@
 package com.nsbm.autovault.adminmodule;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
 
 @SpringBootApplication
 public class AdminModuleApplication {
@@ -12,9 +10,4 @@ public class AdminModuleApplication {
         SpringApplication.run(AdminModuleApplication.class, args);
     }
 
-    @Bean
-    public ModelMapper modelMapper() {
-        return new ModelMapper();
-    }
-
 }
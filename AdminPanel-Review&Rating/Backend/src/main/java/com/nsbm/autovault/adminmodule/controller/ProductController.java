@@ -1,7 +1,9 @@
 package com.nsbm.autovault.adminmodule.controller;
 import com.nsbm.autovault.adminmodule.dto.ProductDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductWithRatingPageDTO;
 import com.nsbm.autovault.adminmodule.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -11,6 +13,9 @@ import java.util.List;
 @CrossOrigin
 
 public class ProductController {
+
+    private static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private ProductService productService;
 
@@ -19,6 +24,21 @@ public class ProductController {
         return productService.getALlProducts();
     }
 
+    // Products with their review count and average rating, one page per call instead of getProduct
+    // followed by getReviewsByProductId for every product. Pass nextCursor back as ?cursor= for the next page.
+    @GetMapping("/getProductsWithRatings")
+    public ResponseEntity<ProductWithRatingPageDTO> getProductsWithRatings(@RequestParam(required = false) String cursor,
+                                                                           @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(productService.getProductsWithRatings(cursor, size));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @PostMapping("/saveProduct")
     public ProductDTO saveProduct(@RequestBody ProductDTO productDTO) {
         return productService.saveProduct(productDTO);
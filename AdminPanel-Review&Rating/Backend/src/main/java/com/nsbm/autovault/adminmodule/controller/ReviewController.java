@@ -1,11 +1,33 @@
 package com.nsbm.autovault.adminmodule.controller;
 
+import com.nsbm.autovault.adminmodule.dto.LeaderboardEntryDTO;
+import com.nsbm.autovault.adminmodule.dto.RatingSummaryDTO;
+import com.nsbm.autovault.adminmodule.dto.ReviewBulkUpdateDTO;
 import com.nsbm.autovault.adminmodule.dto.ReviewDTO;
+import com.nsbm.autovault.adminmodule.dto.ReviewModerationResultDTO;
+import com.nsbm.autovault.adminmodule.dto.ReviewPageDTO;
+import com.nsbm.autovault.adminmodule.dto.SimilarProductDTO;
+import com.nsbm.autovault.adminmodule.dto.TrendingProductDTO;
+import com.nsbm.autovault.adminmodule.repo.ReviewFilter;
+import com.nsbm.autovault.adminmodule.repo.ReviewSort;
+import com.nsbm.autovault.adminmodule.service.DuplicateReviewException;
+import com.nsbm.autovault.adminmodule.service.LeaderboardService;
+import com.nsbm.autovault.adminmodule.service.ProductSimilarityService;
+import com.nsbm.autovault.adminmodule.service.RatingSummaryService;
+import com.nsbm.autovault.adminmodule.service.ReviewIngestionService;
+import com.nsbm.autovault.adminmodule.service.ReviewModerationService;
 import com.nsbm.autovault.adminmodule.service.ReviewService;
+import com.nsbm.autovault.adminmodule.service.ReviewStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping(value = "api/v1/reviews")
@@ -13,22 +35,71 @@ import java.util.List;
 
 public class ReviewController {
 
+    private static final int MAX_SUMMARIES = 100;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_LEADERBOARD_SIZE = 100;
+
     @Autowired
     private ReviewService reviewService;
 
+    @Autowired
+    private RatingSummaryService ratingSummaryService;
+
+    @Autowired
+    private ReviewIngestionService reviewIngestionService;
+
+    @Autowired
+    private LeaderboardService leaderboardService;
+
+    @Autowired
+    private ReviewStreamService reviewStreamService;
+
+    @Autowired
+    private ProductSimilarityService productSimilarityService;
+
+    @Autowired
+    private ReviewModerationService reviewModerationService;
+
     @GetMapping("/getReviews")
     public List<ReviewDTO> getReviews() {
         return reviewService.getAllReviews();
     }
 
+    // 409 when the comment nearly repeats another review of the product, see DuplicateReviewDetector
     @PostMapping("/saveReview")
-    public ReviewDTO saveReview(@RequestBody ReviewDTO reviewDTO) {
-        return reviewService.saveReview(reviewDTO);
+    public ResponseEntity<ReviewDTO> saveReview(@RequestBody ReviewDTO reviewDTO) {
+        try {
+            return ResponseEntity.ok(reviewService.saveReview(reviewDTO));
+        } catch (DuplicateReviewException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // High volume alternative to saveReview for new reviews: answers once the review is committed (with its id),
+    // 409 for a duplicate like saveReview, or 503 with Retry-After when the ingestion queue is full
+    @PostMapping("/ingest")
+    public CompletableFuture<ResponseEntity<ReviewDTO>> ingestReview(@RequestBody ReviewDTO reviewDTO) {
+        try {
+            return reviewIngestionService.submit(reviewDTO)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        } catch (DuplicateReviewException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CONFLICT).build());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build());
+        }
     }
 
     @PutMapping("/updateReview")
-    public ReviewDTO updateReview(@RequestBody ReviewDTO reviewDTO) {
-        return reviewService.updateReview(reviewDTO);
+    public ResponseEntity<ReviewDTO> updateReview(@RequestBody ReviewDTO reviewDTO) {
+        try {
+            return ResponseEntity.ok(reviewService.updateReview(reviewDTO));
+        } catch (DuplicateReviewException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
     }
 
     @DeleteMapping("/deleteReview")
@@ -36,9 +107,116 @@ public class ReviewController {
         return reviewService.deleteReview(reviewDTO);
     }
 
+    // Bulk moderation: delete or update every review the filter selects (ids and/or product, rating, comment pattern,
+    // duplicate flag), for clearing spam waves in one call instead of one deleteReview per review
+    @PostMapping("/moderation/delete")
+    public ResponseEntity<ReviewModerationResultDTO> deleteReviews(@RequestBody ReviewFilter filter) {
+        try {
+            return ResponseEntity.ok(reviewModerationService.deleteReviews(filter));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/moderation/update")
+    public ResponseEntity<ReviewModerationResultDTO> updateReviews(@RequestBody ReviewBulkUpdateDTO update) {
+        try {
+            return ResponseEntity.ok(reviewModerationService.updateReviews(update.getFilter(), update.getRating(),
+                    update.getComment(), update.isClearDuplicateOf()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/getReviewsByProductId/{productId}")
     public List<ReviewDTO> getReviewsByProductId(@PathVariable Long productId) {
         return reviewService.getReviewsByProductId(productId);
     }
 
+    // Live alternative to polling getReviewsByProductId, as Server-Sent Events: a "summary" event with the current
+    // rating summary, then "review" events ({type: created|updated|deleted, review}) and a new "summary" as reviews change
+    @GetMapping(value = "/stream/{productId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamReviews(@PathVariable Long productId) {
+        try {
+            return ResponseEntity.ok(reviewStreamService.subscribe(productId));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "5").build();
+        }
+    }
+
+    // Paged alternatives to getReviews and getReviewsByProductId, pass nextCursor back as ?cursor= for the next page.
+    // sort is newest, oldest, highest or lowest.
+    @GetMapping("/page")
+    public ResponseEntity<ReviewPageDTO> getReviewPage(@RequestParam(defaultValue = "newest") String sort,
+                                                       @RequestParam(required = false) String cursor,
+                                                       @RequestParam(defaultValue = "20") int size) {
+        return reviewPage(null, sort, cursor, size);
+    }
+
+    @GetMapping("/product/{productId}/page")
+    public ResponseEntity<ReviewPageDTO> getReviewPageByProductId(@PathVariable Long productId,
+                                                                  @RequestParam(defaultValue = "newest") String sort,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(defaultValue = "20") int size) {
+        return reviewPage(productId, sort, cursor, size);
+    }
+
+    private ResponseEntity<ReviewPageDTO> reviewPage(Long productId, String sort, String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(reviewService.getReviewPage(productId, ReviewSort.fromKey(sort), cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/summary/{productId}")
+    public RatingSummaryDTO getRatingSummary(@PathVariable Long productId) {
+        return ratingSummaryService.getSummary(productId);
+    }
+
+    // Summaries of several products at once, e.g. /summary?productIds=1,2,3
+    @GetMapping("/summary")
+    public ResponseEntity<List<RatingSummaryDTO>> getRatingSummaries(@RequestParam List<Long> productIds) {
+        if (productIds.size() > MAX_SUMMARIES) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(ratingSummaryService.getSummaries(productIds));
+    }
+
+    // Homepage leaderboards, served from memory
+    @GetMapping("/leaderboard/top-rated")
+    public ResponseEntity<List<LeaderboardEntryDTO>> getTopRated(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LEADERBOARD_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(leaderboardService.getTopRated(limit));
+    }
+
+    // "Customers also rated": products rated alike by the same reviewers, most similar first
+    @GetMapping("/similar/{productId}")
+    public ResponseEntity<List<SimilarProductDTO>> getSimilarProducts(@PathVariable Long productId,
+                                                                      @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LEADERBOARD_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(productSimilarityService.getSimilar(productId, limit));
+    }
+
+    // Products with the most new reviews, window is 1h, 24h or 7d
+    @GetMapping("/leaderboard/trending")
+    public ResponseEntity<List<TrendingProductDTO>> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                                                @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LEADERBOARD_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(leaderboardService.getTrending(LeaderboardService.Window.fromKey(window), limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
 }
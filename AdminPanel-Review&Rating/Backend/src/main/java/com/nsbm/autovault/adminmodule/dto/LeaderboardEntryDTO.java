@@ -0,0 +1,18 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class LeaderboardEntryDTO {
+
+    private Long productId;
+    private long reviewCount;
+    private double averageRating;
+    // Bayesian average the products are ranked by, pulled towards the prior for products with few reviews
+    private double score;
+}
@@ -0,0 +1,19 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class ProductWithRatingDTO {
+    // Written inline, the JSON has the product fields next to the rating fields
+    @JsonUnwrapped
+    private ProductDTO product;
+    private long reviewCount;
+    // 0 when the product has no reviews
+    private double averageRating;
+}
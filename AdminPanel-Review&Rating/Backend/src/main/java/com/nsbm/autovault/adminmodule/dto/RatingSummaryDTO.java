@@ -0,0 +1,22 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class RatingSummaryDTO {
+
+    private Long productId;
+    private long reviewCount;
+    private double averageRating;
+    // Number of reviews per star, from 1 star (index 0) to 5 stars (index 4)
+    private long[] histogram;
+    // Null when the product has no reviews yet
+    private LocalDateTime lastUpdated;
+}
@@ -0,0 +1,20 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import com.nsbm.autovault.adminmodule.repo.ReviewFilter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class ReviewBulkUpdateDTO {
+
+    private ReviewFilter filter;
+    // New values for the matching reviews, null leaves the field as it is
+    private Integer rating;
+    private String comment;
+    // Clear the duplicate flag, e.g. after checking flagged reviews
+    private boolean clearDuplicateOf;
+}
@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
@@ -14,6 +16,10 @@ public class ReviewDTO {
     private String comment;
     private Integer rating;
     private int productId;
+    private Long reviewerId;
+    // Read only, ignored when saving
+    private LocalDateTime createdAt;
+    private Long duplicateOf;
 
 
 }
@@ -0,0 +1,17 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class ReviewModerationResultDTO {
+
+    // Reviews deleted or updated
+    private long affected;
+    // Products whose reviews were deleted or updated
+    private int products;
+}
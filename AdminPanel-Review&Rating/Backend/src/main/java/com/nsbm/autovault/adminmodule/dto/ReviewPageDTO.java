@@ -0,0 +1,19 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class ReviewPageDTO {
+
+    private List<ReviewDTO> reviews;
+    // Pass back as ?cursor= to get the next page, null on the last page
+    private String nextCursor;
+    private boolean hasNext;
+}
@@ -0,0 +1,16 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class ReviewStreamEventDTO {
+
+    // created, updated or deleted
+    private String type;
+    private ReviewDTO review;
+}
@@ -0,0 +1,16 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class SimilarProductDTO {
+
+    private Long productId;
+    // Cosine similarity of the ratings both products got from the same reviewers, from 0 to 1
+    private double similarity;
+}
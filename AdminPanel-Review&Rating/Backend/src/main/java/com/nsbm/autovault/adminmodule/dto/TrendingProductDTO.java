@@ -0,0 +1,16 @@
+package com.nsbm.autovault.adminmodule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class TrendingProductDTO {
+
+    private Long productId;
+    // New reviews within the requested window
+    private long newReviews;
+}
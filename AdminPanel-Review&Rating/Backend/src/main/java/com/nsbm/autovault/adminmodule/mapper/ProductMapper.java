@@ -0,0 +1,18 @@
+package com.nsbm.autovault.adminmodule.mapper;
+
+import com.nsbm.autovault.adminmodule.dto.ProductDTO;
+import com.nsbm.autovault.adminmodule.model.Product;
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+// Implemented at compile time by MapStruct (ProductMapperImpl)
+@Mapper(componentModel = "spring")
+public interface ProductMapper {
+
+    ProductDTO toDTO(Product product);
+
+    Product toEntity(ProductDTO productDTO);
+
+    List<ProductDTO> toDTOs(List<Product> products);
+}
@@ -0,0 +1,22 @@
+package com.nsbm.autovault.adminmodule.mapper;
+
+import com.nsbm.autovault.adminmodule.dto.ReviewDTO;
+import com.nsbm.autovault.adminmodule.model.Review;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+// Implemented at compile time by MapStruct (ReviewMapperImpl), plain getter and setter calls without reflection
+@Mapper(componentModel = "spring")
+public interface ReviewMapper {
+
+    ReviewDTO toDTO(Review review);
+
+    // The creation time and the duplicate flag are always set by the server
+    @Mapping(target = "createdAt", ignore = true)
+    @Mapping(target = "duplicateOf", ignore = true)
+    Review toEntity(ReviewDTO reviewDTO);
+
+    List<ReviewDTO> toDTOs(List<Review> reviews);
+}
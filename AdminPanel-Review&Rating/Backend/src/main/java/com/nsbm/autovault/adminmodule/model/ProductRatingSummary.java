@@ -0,0 +1,31 @@
+package com.nsbm.autovault.adminmodule.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Running totals of the reviews of one product, kept up to date by ReviewService
+// so a star rating can be shown without reading the reviews themselves.
+// Only ratings from 1 to 5 are counted.
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class ProductRatingSummary {
+
+    @Id
+    private Long productId;
+    private long reviewCount;
+    private long ratingSum;
+    private long star1;
+    private long star2;
+    private long star3;
+    private long star4;
+    private long star5;
+    private LocalDateTime lastUpdated;
+}
@@ -2,22 +2,44 @@ package com.nsbm.autovault.adminmodule.model;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
+// Indexes for the paged review listings: per product by id or by rating, and all reviews by rating.
+// created_at is for rebuilding the trending counters of LeaderboardService, reviewer_id for ProductSimilarityService,
+// duplicate_of for finding the flagged reviews.
+@Table(indexes = {
+        @Index(name = "idx_review_product_id", columnList = "product_id, id"),
+        @Index(name = "idx_review_product_rating", columnList = "product_id, rating, id"),
+        @Index(name = "idx_review_rating", columnList = "rating, id"),
+        @Index(name = "idx_review_created_at", columnList = "created_at"),
+        @Index(name = "idx_review_reviewer_product", columnList = "reviewer_id, product_id"),
+        @Index(name = "idx_review_duplicate_of", columnList = "duplicate_of")
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Data
 
 public class Review {
 
+    // New reviews get their id from ReviewIdAllocator before they are inserted
     @Id
     private Long id;
     private String comment;
     private Integer rating;
     private Long productId;
+    // Who wrote the review, optional. Only reviews with a reviewer count for similar products.
+    private Long reviewerId;
+    // Set by the server when the review is first stored, null for reviews older than this column
+    private LocalDateTime createdAt;
+    // Flagged by DuplicateReviewDetector: the id of an earlier review with nearly the same comment, null otherwise
+    private Long duplicateOf;
 
     
 }
@@ -0,0 +1,40 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.model.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Long> {
+
+    List<ProductRatingSummary> findByProductIdIn(Collection<Long> productIds);
+
+    // Add the deltas to the summary of a product, creating it on its first review.
+    // A single statement, so concurrent reviews of the same product can't lose each other's update.
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summary " +
+            "(product_id, review_count, rating_sum, star1, star2, star3, star4, star5, last_updated) " +
+            "VALUES (:productId, :count, :sum, :star1, :star2, :star3, :star4, :star5, :now) " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + :count, rating_sum = rating_sum + :sum, " +
+            "star1 = star1 + :star1, star2 = star2 + :star2, star3 = star3 + :star3, " +
+            "star4 = star4 + :star4, star5 = star5 + :star5, last_updated = :now", nativeQuery = true)
+    void applyDelta(@Param("productId") Long productId, @Param("count") long count, @Param("sum") long sum,
+                    @Param("star1") long star1, @Param("star2") long star2, @Param("star3") long star3,
+                    @Param("star4") long star4, @Param("star5") long star5, @Param("now") LocalDateTime now);
+
+    // Build the summaries of all products from the review table in one statement
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summary " +
+            "(product_id, review_count, rating_sum, star1, star2, star3, star4, star5, last_updated) " +
+            "SELECT product_id, COUNT(*), SUM(rating), " +
+            "SUM(CASE WHEN rating = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 2 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN rating = 3 THEN 1 ELSE 0 END), SUM(CASE WHEN rating = 4 THEN 1 ELSE 0 END), " +
+            "SUM(CASE WHEN rating = 5 THEN 1 ELSE 0 END), :now " +
+            "FROM review WHERE product_id IS NOT NULL AND rating BETWEEN 1 AND 5 GROUP BY product_id", nativeQuery = true)
+    int backfill(@Param("now") LocalDateTime now);
+}
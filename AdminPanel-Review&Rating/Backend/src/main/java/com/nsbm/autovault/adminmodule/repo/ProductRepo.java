@@ -1,9 +1,21 @@
 package com.nsbm.autovault.adminmodule.repo;
 
 import com.nsbm.autovault.adminmodule.model.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProductRepo extends JpaRepository<Product,Integer> {
+
+    // Product, review count and rating sum of the products after `afterId`, in id order.
+    // The totals come from the rating summaries, null for products without reviews.
+    @Query("SELECT p, s.reviewCount, s.ratingSum FROM Product p "
+            + "LEFT JOIN ProductRatingSummary s ON s.productId = p.id "
+            + "WHERE p.id > :afterId ORDER BY p.id")
+    List<Object[]> findWithRatingsAfter(@Param("afterId") int afterId, Limit limit);
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.model.Review;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position in a paged review listing: the id (and rating) of the last review on a page.
+// Clients get it as an opaque string and pass it back for the next page.
+@AllArgsConstructor
+@Data
+
+public class ReviewCursor {
+
+    private ReviewSort sort;
+    private Long id;
+    private Integer rating; // Only used when sorting by rating
+
+    public static ReviewCursor after(Review review, ReviewSort sort) {
+        return new ReviewCursor(sort, review.getId(), sort.isByRating() ? review.getRating() : null);
+    }
+
+    public String encode() {
+        String plain = sort.getKey() + ":" + id + ":" + (rating == null ? "" : rating);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Read a cursor created by encode(), it must have been created for the same sort
+    public static ReviewCursor decode(String encoded, ReviewSort sort) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8).split(":", -1);
+            if (parts.length != 3 || !parts[0].equals(sort.getKey())) {
+                throw new IllegalArgumentException("Cursor does not belong to this sort order");
+            }
+            Integer rating = sort.isByRating() ? Integer.valueOf(parts[2]) : null;
+            return new ReviewCursor(sort, Long.valueOf(parts[1]), rating);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
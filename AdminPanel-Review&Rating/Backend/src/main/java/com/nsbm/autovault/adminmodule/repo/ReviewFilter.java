@@ -0,0 +1,28 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Which reviews a bulk moderation operation applies to. Every criterion that is set must match,
+// at least one has to be set so that an empty filter can't select all reviews.
+@NoArgsConstructor
+@AllArgsConstructor
+@Data
+
+public class ReviewFilter {
+
+    private List<Long> ids;
+    private Long productId;
+    private Integer rating;
+    // SQL LIKE pattern matched against the comment ignoring case, e.g. "%free service%"
+    private String commentPattern;
+    // true for reviews flagged as duplicates only, false for unflagged ones only
+    private Boolean flagged;
+
+    public boolean isEmpty() {
+        return ids == null && productId == null && rating == null && commentPattern == null && flagged == null;
+    }
+}
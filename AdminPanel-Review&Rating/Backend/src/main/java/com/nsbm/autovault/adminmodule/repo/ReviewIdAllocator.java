@@ -0,0 +1,83 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+// Hands out ids for new reviews in blocks (hi/lo). MySQL has no sequences, the next free block is kept in the
+// review_id_generator table and one round trip there reserves ALLOCATION_SIZE ids. Because ids are known
+// before the insert, Hibernate can batch inserts, which it can't do for IDENTITY columns.
+//
+// Blocks are fetched over a pool of one connection that belongs only to the allocator. It is used from
+// inside request transactions, and a second connection from the shared pool could deadlock: with every
+// pooled connection held by a transaction waiting for an id, none is left to fetch the next block.
+@Component
+
+public class ReviewIdAllocator {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewIdAllocator.class);
+
+    private final HikariDataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private boolean tableChecked;
+    private long nextId;
+    private long blockEnd;  // Exclusive, nextId == blockEnd means a new block is needed
+
+    public ReviewIdAllocator(DataSourceProperties dataSourceProperties) {
+        dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("review-id-allocator");
+        dataSource.setMaximumPoolSize(1);
+        dataSource.setMinimumIdle(0);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    public synchronized long next() {
+        if (nextId == blockEnd) {
+            nextId = fetchBlock();
+            blockEnd = nextId + ALLOCATION_SIZE;
+        }
+        return nextId++;
+    }
+
+    // Reserve the next block and return its first id. The row lock makes this safe across instances.
+    // Review ids used to be chosen by the clients, so a block never starts below the highest id in the table.
+    private long fetchBlock() {
+        if (!tableChecked) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS review_id_generator "
+                    + "(sequence_name VARCHAR(255) NOT NULL PRIMARY KEY, next_val BIGINT NOT NULL)");
+            tableChecked = true;
+        }
+        return transactionTemplate.execute(status -> {
+            List<Long> stored = jdbcTemplate.queryForList(
+                    "SELECT next_val FROM review_id_generator WHERE sequence_name = 'review' FOR UPDATE", Long.class);
+            long firstFree = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) + 1 FROM review", Long.class);
+            if (stored.isEmpty()) {
+                jdbcTemplate.update("INSERT INTO review_id_generator (sequence_name, next_val) VALUES ('review', ?)",
+                        firstFree + ALLOCATION_SIZE);
+                log.info("Review ids start at {}", firstFree);
+                return firstFree;
+            }
+            long start = Math.max(stored.get(0), firstFree);
+            jdbcTemplate.update("UPDATE review_id_generator SET next_val = ? WHERE sequence_name = 'review'",
+                    start + ALLOCATION_SIZE);
+            return start;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        dataSource.close();
+    }
+}
@@ -1,10 +1,37 @@
 package com.nsbm.autovault.adminmodule.repo;
 
 import com.nsbm.autovault.adminmodule.model.Review;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, ReviewRepositoryCustom {
     List<Review> findByProductId(Long productId);
+
+    // Load a review and lock it until the transaction ends, so two concurrent edits of the same review
+    // can't both subtract its old rating from the product summary
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> findByIdForUpdate(@Param("id") Long id);
+
+    // Product id and creation time of the reviews created after `since`, without loading the comments
+    @Query("SELECT r.productId, r.createdAt FROM Review r WHERE r.createdAt > :since")
+    List<Object[]> findCreationTimesAfter(@Param("since") LocalDateTime since);
+
+    // Bulk delete for moderation, one statement for all ids
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM Review r WHERE r.id IN :ids")
+    int deleteAllByIds(@Param("ids") List<Long> ids);
+
+    // Id, product id and comment of the newest reviews, newest first
+    @Query("SELECT r.id, r.productId, r.comment FROM Review r ORDER BY r.id DESC")
+    List<Object[]> findNewestComments(Limit limit);
 }
@@ -0,0 +1,23 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.model.Review;
+
+import java.util.List;
+
+public interface ReviewRepositoryCustom {
+
+    // Up to `limit` reviews in the given order, starting after the cursor (null for the first page).
+    // productId may be null for reviews of all products. Sorting by rating skips reviews without a rating.
+    List<Review> findPage(Long productId, ReviewSort sort, ReviewCursor after, int limit);
+
+    // Insert new reviews whose ids are already assigned. save() would merge them, which reads every id first.
+    void insertAll(List<Review> reviews);
+
+    // Up to `limit` reviews matching the filter with an id above afterId, by id, locked until the transaction ends.
+    // ids, when not null, replaces the ids of the filter (a slice of them).
+    List<Review> findForModeration(ReviewFilter filter, List<Long> ids, long afterId, int limit);
+
+    // Set the rating and/or the comment of the reviews with the given ids (null leaves it unchanged),
+    // and clear their duplicate flag if asked, in one statement. Returns the number of updated reviews.
+    int updateAll(List<Long> ids, Integer rating, String comment, boolean clearDuplicateOf);
+}
@@ -0,0 +1,124 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import com.nsbm.autovault.adminmodule.model.Review;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keyset pagination: each page continues from the (rating, id) of the previous one instead of using an OFFSET,
+// so page 5000 costs the same index range scan as page 1
+public class ReviewRepositoryImpl implements ReviewRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Review> findPage(Long productId, ReviewSort sort, ReviewCursor after, int limit) {
+        String direction = sort.isDescending() ? "DESC" : "ASC";
+        String compare = sort.isDescending() ? "<" : ">";
+
+        List<String> conditions = new ArrayList<>();
+        if (productId != null) {
+            conditions.add("r.productId = :productId");
+        }
+        if (sort.isByRating()) {
+            conditions.add("r.rating IS NOT NULL");
+        }
+        if (after != null) {
+            conditions.add(sort.isByRating()
+                    ? "(r.rating " + compare + " :rating OR (r.rating = :rating AND r.id " + compare + " :id))"
+                    : "r.id " + compare + " :id");
+        }
+
+        String jpql = "SELECT r FROM Review r"
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY " + (sort.isByRating() ? "r.rating " + direction + ", " : "") + "r.id " + direction;
+        TypedQuery<Review> query = entityManager.createQuery(jpql, Review.class);
+        if (productId != null) {
+            query.setParameter("productId", productId);
+        }
+        if (after != null) {
+            query.setParameter("id", after.getId());
+            if (sort.isByRating()) {
+                query.setParameter("rating", after.getRating());
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public void insertAll(List<Review> reviews) {
+        for (Review review : reviews) {
+            entityManager.persist(review);
+        }
+    }
+
+    @Override
+    public List<Review> findForModeration(ReviewFilter filter, List<Long> ids, long afterId, int limit) {
+        List<String> conditions = new ArrayList<>();
+        conditions.add("r.id > :afterId");
+        if (ids != null) {
+            conditions.add("r.id IN :ids");
+        }
+        if (filter.getProductId() != null) {
+            conditions.add("r.productId = :productId");
+        }
+        if (filter.getRating() != null) {
+            conditions.add("r.rating = :rating");
+        }
+        if (filter.getCommentPattern() != null) {
+            conditions.add("LOWER(r.comment) LIKE :commentPattern");
+        }
+        if (filter.getFlagged() != null) {
+            conditions.add(filter.getFlagged() ? "r.duplicateOf IS NOT NULL" : "r.duplicateOf IS NULL");
+        }
+
+        TypedQuery<Review> query = entityManager.createQuery(
+                "SELECT r FROM Review r WHERE " + String.join(" AND ", conditions) + " ORDER BY r.id", Review.class);
+        query.setParameter("afterId", afterId);
+        if (ids != null) {
+            query.setParameter("ids", ids);
+        }
+        if (filter.getProductId() != null) {
+            query.setParameter("productId", filter.getProductId());
+        }
+        if (filter.getRating() != null) {
+            query.setParameter("rating", filter.getRating());
+        }
+        if (filter.getCommentPattern() != null) {
+            query.setParameter("commentPattern", filter.getCommentPattern().toLowerCase());
+        }
+        return query.setLockMode(LockModeType.PESSIMISTIC_WRITE).setMaxResults(limit).getResultList();
+    }
+
+    @Override
+    public int updateAll(List<Long> ids, Integer rating, String comment, boolean clearDuplicateOf) {
+        List<String> assignments = new ArrayList<>();
+        if (rating != null) {
+            assignments.add("r.rating = :rating");
+        }
+        if (comment != null) {
+            assignments.add("r.comment = :comment");
+        }
+        if (clearDuplicateOf) {
+            assignments.add("r.duplicateOf = NULL");
+        }
+        Query query = entityManager.createQuery(
+                "UPDATE Review r SET " + String.join(", ", assignments) + " WHERE r.id IN :ids");
+        query.setParameter("ids", ids);
+        if (rating != null) {
+            query.setParameter("rating", rating);
+        }
+        if (comment != null) {
+            query.setParameter("comment", comment);
+        }
+        int updated = query.executeUpdate();
+        entityManager.clear();  // Loaded reviews still have the old values
+        return updated;
+    }
+}
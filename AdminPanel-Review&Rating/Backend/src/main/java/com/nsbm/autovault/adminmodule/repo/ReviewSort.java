@@ -0,0 +1,40 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import java.util.Locale;
+
+// Orders the paged review endpoints support. Every order ends with the id so each review
+// has a fixed position a cursor can point to. Ids grow with every new review, so they stand for recency.
+public enum ReviewSort {
+
+    NEWEST("newest"),
+    OLDEST("oldest"),
+    HIGHEST("highest"), // Highest rating first, newest first within a rating
+    LOWEST("lowest"); // Lowest rating first, oldest first within a rating
+
+    private final String key;
+
+    ReviewSort(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public boolean isByRating() {
+        return this == HIGHEST || this == LOWEST;
+    }
+
+    public boolean isDescending() {
+        return this == NEWEST || this == HIGHEST;
+    }
+
+    public static ReviewSort fromKey(String key) {
+        for (ReviewSort sort : values()) {
+            if (sort.key.equals(key.toLowerCase(Locale.ROOT))) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort: " + key + " (use newest, oldest, highest or lowest)");
+    }
+}
@@ -0,0 +1,201 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.model.Review;
+import com.nsbm.autovault.adminmodule.repo.ReviewRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+// Catches floods of near-identical reviews as they arrive, see MinHashIndex. Every new or edited comment
+// is compared with the recent ones in constant time; a near-duplicate of a review of the same product is rejected
+// by default, one of a review of another product is stored with duplicateOf set for moderation.
+// Rejected reviews aren't added, so a flood keeps matching the review it copies. New reviews are added when they
+// are inspected, so that a flood is caught before it is written, and forgotten again if they are never committed;
+// an edited comment replaces the old one the same way, and deleted reviews are forgotten once the delete is committed.
+// The index is filled with the newest reviews when the application starts.
+@Service
+@Order(3)
+
+public class DuplicateReviewDetector implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DuplicateReviewDetector.class);
+
+    public enum Action {
+        REJECT, FLAG, ALLOW
+    }
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Value("${autovault.reviews.duplicates.enabled:true}")
+    private boolean enabled;
+
+    @Value("${autovault.reviews.duplicates.same-product:reject}")
+    private Action sameProduct;
+
+    @Value("${autovault.reviews.duplicates.other-product:flag}")
+    private Action otherProduct;
+
+    @Value("${autovault.reviews.duplicates.bands:16}")
+    private int bands;
+
+    @Value("${autovault.reviews.duplicates.rows:4}")
+    private int rows;
+
+    @Value("${autovault.reviews.duplicates.min-matching-bands:4}")
+    private int minMatchingBands;
+
+    @Value("${autovault.reviews.duplicates.table-bits:18}")
+    private int tableBits;
+
+    @Value("${autovault.reviews.duplicates.min-length:30}")
+    private int minLength;
+
+    private MinHashIndex index;
+
+    @PostConstruct
+    public void start() {
+        index = new MinHashIndex(bands, rows, minMatchingBands, tableBits, minLength);
+    }
+
+    // Check a review that is about to be stored, it must already have its id. Sets duplicateOf when the review
+    // is flagged, throws DuplicateReviewException when it is rejected. Short comments are never duplicates.
+    public void inspect(Review review) {
+        if (!enabled) {
+            return;
+        }
+        int[] signature = index.signature(review.getComment());
+        if (signature == null) {
+            return;
+        }
+        long productId = review.getProductId() == null ? -1 : review.getProductId();
+        MinHashIndex.Match match = index.addAndMatch(signature, review.getId(), productId,
+                found -> action(found, productId) != Action.REJECT);
+        if (match == null) {
+            return;
+        }
+        Action action = action(match, productId);
+        if (action == Action.REJECT) {
+            throw new DuplicateReviewException(match.id());
+        }
+        if (action == Action.FLAG) {
+            review.setDuplicateOf(match.id());
+        }
+    }
+
+    // Check the new comment of a stored review like inspect. The old comment is forgotten first, so that later reviews
+    // aren't reported as duplicates of text that is gone, and remembered again if the current transaction isn't committed.
+    public void inspectChange(Review before, Review after) {
+        if (!enabled) {
+            return;
+        }
+        forget(before);
+        restoreOnRollback(List.of(before));
+        inspect(after);
+    }
+
+    // Take over the comments moderators set on stored reviews, without judging them; the old comments are
+    // remembered again if the current transaction isn't committed
+    public void replace(List<Review> before, List<Review> after) {
+        if (!enabled) {
+            return;
+        }
+        before.forEach(this::forget);
+        restoreOnRollback(before);
+        after.forEach(this::remember);
+    }
+
+    // Forget a new review that was inspected but won't be stored
+    public void forget(Review review) {
+        if (enabled && review.getId() != null) {
+            index.remove(review.getId());
+        }
+    }
+
+    // Forget a new review inspected inside the current transaction if that transaction isn't committed
+    public void forgetOnRollback(Review review) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    forget(review);
+                }
+            }
+        });
+    }
+
+    // Put the stored versions of changed reviews back if the current transaction isn't committed
+    private void restoreOnRollback(List<Review> before) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    before.forEach(review -> {
+                        forget(review);
+                        remember(review);
+                    });
+                }
+            }
+        });
+    }
+
+    // Add a stored review without checking it
+    private void remember(Review review) {
+        remember(review.getId(), review.getProductId(), review.getComment());
+    }
+
+    private void remember(long id, Long productId, String comment) {
+        int[] signature = index.signature(comment);
+        if (signature != null) {
+            index.addAndMatch(signature, id, productId == null ? -1 : productId, found -> true);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        if (event.after() == null && event.before() != null) {
+            forget(event.before());
+        }
+    }
+
+    private Action action(MinHashIndex.Match match, long productId) {
+        return match.groupId() == productId ? sameProduct : otherProduct;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        // In the background, the index only misses some matches until it is filled
+        Thread loader = new Thread(this::load, "duplicate-review-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Add the newest reviews, as many as the index remembers, oldest first like they arrived
+    private void load() {
+        try {
+            List<Object[]> newest = reviewRepository.findNewestComments(Limit.of(1 << (tableBits - 1)));
+            for (int i = newest.size() - 1; i >= 0; i--) {
+                Object[] review = newest.get(i);
+                remember((Long) review[0], (Long) review[1], (String) review[2]);
+            }
+            log.info("Loaded {} reviews into the duplicate review index", newest.size());
+        } catch (RuntimeException e) {
+            log.warn("Could not load the duplicate review index", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.nsbm.autovault.adminmodule.service;
+
+// A review was rejected because its comment nearly repeats an earlier review
+public class DuplicateReviewException extends RuntimeException {
+
+    private final long duplicateOf;
+
+    public DuplicateReviewException(long duplicateOf) {
+        super("Review nearly repeats review " + duplicateOf);
+        this.duplicateOf = duplicateOf;
+    }
+
+    public long getDuplicateOf() {
+        return duplicateOf;
+    }
+}
@@ -0,0 +1,311 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.dto.LeaderboardEntryDTO;
+import com.nsbm.autovault.adminmodule.dto.TrendingProductDTO;
+import com.nsbm.autovault.adminmodule.model.ProductRatingSummary;
+import com.nsbm.autovault.adminmodule.model.Review;
+import com.nsbm.autovault.adminmodule.repo.ProductRatingSummaryRepository;
+import com.nsbm.autovault.adminmodule.repo.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// In-memory leaderboards for the homepage, answered without touching the database: the best rated products
+// of all time and the products with the most new reviews in the last hour, day or week.
+// Updated from ReviewChangedEvent once the change is committed, and rebuilt from the rating summaries
+// and the reviews of the last week when the application starts.
+//
+// Best rated: products are ranked by Bayesian average (priorWeight * priorMean + ratingSum) / (priorWeight + reviewCount),
+// so a single 5 star review doesn't beat hundreds of good ones. The ranking is a ConcurrentSkipListSet,
+// a top N query reads its first N entries.
+// Trending: per product ring buffers of review counts, 60 one-minute buckets for the last hour and
+// 168 one-hour buckets for the last day and week. A bucket is reset when its slot comes round again.
+@Service
+@Order(2)
+
+public class LeaderboardService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
+    private static final int MINUTE_BUCKETS = 60;
+    private static final int HOUR_BUCKETS = 7 * 24;
+
+    // Trending windows. The day and the week are counted in whole hours, including the current one.
+    public enum Window {
+        HOUR("1h", 60), DAY("24h", 24 * 60), WEEK("7d", 7 * 24 * 60);
+
+        private final String key;
+        private final int minutes;
+
+        Window(String key, int minutes) {
+            this.key = key;
+            this.minutes = minutes;
+        }
+
+        public static Window fromKey(String key) {
+            for (Window window : values()) {
+                if (window.key.equalsIgnoreCase(key)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("Unknown window: " + key + " (use 1h, 24h or 7d)");
+        }
+    }
+
+    private static final Comparator<Ranked> RANKING_ORDER = Comparator.comparingDouble(Ranked::score).reversed()
+            .thenComparing(Comparator.comparingLong(Ranked::reviewCount).reversed())
+            .thenComparingLong(Ranked::productId);
+
+    @Autowired
+    private ProductRatingSummaryRepository summaryRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Value("${autovault.reviews.leaderboard.prior-mean:3.0}")
+    private double priorMean;
+
+    @Value("${autovault.reviews.leaderboard.prior-weight:10}")
+    private double priorWeight;
+
+    // Replaced as a whole by rebuild()
+    private volatile Board board = new Board();
+
+    private static final class Board {
+        private final ConcurrentHashMap<Long, ProductStats> products = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListSet<Ranked> ranking = new ConcurrentSkipListSet<>(RANKING_ORDER);
+        // Products with reviews from the last week, the only ones that can be trending
+        private final Set<ProductStats> recent = ConcurrentHashMap.newKeySet();
+    }
+
+    // One product, changed only while holding its lock
+    private static final class ProductStats {
+        private final long productId;
+        private long reviewCount;
+        private long ratingSum;
+        private Ranked ranked;  // Its entry in the ranking, null without ratings
+        // Ring buffers, allocated with the first review from the last week
+        private int[] minuteCounts;
+        private long[] minuteSlots;
+        private int[] hourCounts;
+        private long[] hourSlots;
+
+        private ProductStats(long productId) {
+            this.productId = productId;
+        }
+    }
+
+    private record Ranked(long productId, double score, long reviewCount, long ratingSum) {
+    }
+
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        Board current = board;
+        Review before = event.before();
+        Review after = event.after();
+        if (before != null && after != null && Objects.equals(before.getProductId(), after.getProductId())) {
+            // Edit of a review that stays with its product, only the rating can change
+            changeRating(current, after.getProductId(), counted(after) - counted(before),
+                    rating(after) - rating(before));
+            return;
+        }
+        if (before != null) {
+            changeRating(current, before.getProductId(), -counted(before), -rating(before));
+            countReview(current, before.getProductId(), before.getCreatedAt(), -1);
+        }
+        if (after != null) {
+            changeRating(current, after.getProductId(), counted(after), rating(after));
+            countReview(current, after.getProductId(), after.getCreatedAt(), 1);
+        }
+    }
+
+    // The `limit` products with the highest Bayesian average
+    public List<LeaderboardEntryDTO> getTopRated(int limit) {
+        List<LeaderboardEntryDTO> top = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        for (Ranked ranked : board.ranking) {
+            if (top.size() == limit) {
+                break;
+            }
+            if (seen.add(ranked.productId())) {  // See rank() for why a product can show up twice
+                top.add(new LeaderboardEntryDTO(ranked.productId(), ranked.reviewCount(),
+                        (double) ranked.ratingSum() / ranked.reviewCount(), ranked.score()));
+            }
+        }
+        return top;
+    }
+
+    // The `limit` products with the most new reviews within the window
+    public List<TrendingProductDTO> getTrending(Window window, int limit) {
+        long now = currentMinute();
+        Board current = board;
+        // Smallest of the best `limit` at the head
+        PriorityQueue<TrendingProductDTO> best = new PriorityQueue<>(Comparator
+                .comparingLong(TrendingProductDTO::getNewReviews)
+                .thenComparing(TrendingProductDTO::getProductId, Comparator.reverseOrder()));
+        Iterator<ProductStats> iterator = current.recent.iterator();
+        while (iterator.hasNext()) {
+            ProductStats stats = iterator.next();
+            long count;
+            synchronized (stats) {
+                count = newReviews(stats, window, now);
+                if (count == 0 && newReviews(stats, Window.WEEK, now) == 0) {
+                    iterator.remove();  // Nothing left in any window
+                }
+            }
+            if (count > 0) {
+                best.add(new TrendingProductDTO(stats.productId, count));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<TrendingProductDTO> trending = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            trending.add(best.poll());
+        }
+        Collections.reverse(trending);
+        return trending;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        rebuild();
+    }
+
+    // Load everything from the database into a new board and swap it in.
+    // Changes committed while it loads may be missing until the next rebuild.
+    public void rebuild() {
+        Board rebuilt = new Board();
+        for (ProductRatingSummary summary : summaryRepository.findAll()) {
+            changeRating(rebuilt, summary.getProductId(), summary.getReviewCount(), summary.getRatingSum());
+        }
+        List<Object[]> recentReviews = reviewRepository.findCreationTimesAfter(
+                LocalDateTime.now().minusMinutes(Window.WEEK.minutes));
+        for (Object[] review : recentReviews) {
+            countReview(rebuilt, (Long) review[0], (LocalDateTime) review[1], 1);
+        }
+        board = rebuilt;
+        log.info("Built the leaderboards from {} rated products and {} reviews of the last week",
+                rebuilt.ranking.size(), recentReviews.size());
+    }
+
+    private void changeRating(Board board, Long productId, long countDelta, long sumDelta) {
+        if (productId == null || (countDelta == 0 && sumDelta == 0)) {
+            return;
+        }
+        ProductStats stats = board.products.computeIfAbsent(productId, ProductStats::new);
+        synchronized (stats) {
+            stats.reviewCount += countDelta;
+            stats.ratingSum += sumDelta;
+            rank(board, stats);
+        }
+    }
+
+    // Move the product to its new position. The new entry is added before the old one is removed,
+    // so the product never goes missing from the ranking; a reader may see both for a moment.
+    private void rank(Board board, ProductStats stats) {
+        Ranked previous = stats.ranked;
+        Ranked current = stats.reviewCount <= 0 ? null : new Ranked(stats.productId,
+                (priorWeight * priorMean + stats.ratingSum) / (priorWeight + stats.reviewCount),
+                stats.reviewCount, stats.ratingSum);
+        if (current != null) {
+            board.ranking.add(current);
+        }
+        if (previous != null && (current == null || RANKING_ORDER.compare(previous, current) != 0)) {
+            board.ranking.remove(previous);
+        }
+        stats.ranked = current;
+    }
+
+    // Add (delta 1) or remove (delta -1) a review created at the given time from the trending counters
+    private void countReview(Board board, Long productId, LocalDateTime createdAt, int delta) {
+        if (productId == null || createdAt == null) {
+            return;
+        }
+        long minute = createdAt.atZone(ZoneId.systemDefault()).toEpochSecond() / 60;
+        if (minute <= currentMinute() - Window.WEEK.minutes) {
+            return;
+        }
+        ProductStats stats = board.products.computeIfAbsent(productId, ProductStats::new);
+        synchronized (stats) {
+            if (stats.minuteCounts == null) {
+                stats.minuteCounts = new int[MINUTE_BUCKETS];
+                stats.minuteSlots = new long[MINUTE_BUCKETS];
+                stats.hourCounts = new int[HOUR_BUCKETS];
+                stats.hourSlots = new long[HOUR_BUCKETS];
+            }
+            add(stats.minuteCounts, stats.minuteSlots, minute, delta);
+            add(stats.hourCounts, stats.hourSlots, minute / 60, delta);
+            board.recent.add(stats);
+        }
+    }
+
+    private static void add(int[] counts, long[] slots, long slot, int delta) {
+        int index = (int) (slot % counts.length);
+        if (slots[index] != slot) {
+            if (slots[index] > slot) {
+                return;  // The bucket already counts a later period, this one is out of the ring
+            }
+            slots[index] = slot;
+            counts[index] = 0;
+        }
+        counts[index] += delta;
+    }
+
+    // Caller holds the lock of stats
+    private static long newReviews(ProductStats stats, Window window, long now) {
+        if (stats.minuteCounts == null) {
+            return 0;
+        }
+        if (window == Window.HOUR) {
+            return sum(stats.minuteCounts, stats.minuteSlots, now - window.minutes, now);
+        }
+        long hour = now / 60;
+        return sum(stats.hourCounts, stats.hourSlots, hour - window.minutes / 60, hour);
+    }
+
+    // Total of the buckets with a slot in (from, to]
+    private static long sum(int[] counts, long[] slots, long from, long to) {
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (slots[i] > from && slots[i] <= to) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    private static long currentMinute() {
+        return System.currentTimeMillis() / 60_000;
+    }
+
+    // Only ratings from 1 to 5 are counted, like in the rating summaries
+    private static int rating(Review review) {
+        Integer rating = review.getRating();
+        return rating != null && rating >= 1 && rating <= 5 ? rating : 0;
+    }
+
+    private static int counted(Review review) {
+        return rating(review) > 0 ? 1 : 0;
+    }
+}
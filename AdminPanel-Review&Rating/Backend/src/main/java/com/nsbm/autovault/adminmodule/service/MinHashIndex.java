@@ -0,0 +1,219 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+// Finds texts that are near-duplicates of texts seen before, in constant time per text (MinHash with LSH banding).
+// A text becomes a set of character 5-grams, the signature keeps the minimum of bands * rows hash functions
+// over that set; two texts agree on each position with a probability equal to their Jaccard similarity.
+// Every band of `rows` positions is hashed into its own table, texts sharing at least minMatchingBands
+// bands with a stored text are reported as duplicates of it, texts of the same group (e.g. product) first.
+// With 16 bands of 4 rows and 4 matching bands, 90% similar texts are found almost always,
+// 80% similar ones most of the time and 50% similar ones rarely.
+//
+// Memory is fixed: each band table has 2^tableBits slots and a newer text overwrites an older one in the same slot,
+// so the index remembers roughly the last 2^tableBits / 2 texts (bands * 2^tableBits * 8 bytes plus 2^tableBits * 16 bytes,
+// and a map from id to sequence number for at most 2^tableBits ids).
+// Storing an id again replaces its earlier text.
+public final class MinHashIndex {
+
+    private static final int SHINGLE_LENGTH = 5;
+    private static final long FINGERPRINT = 0xffff_ffff_0000_0000L;
+    // Id of a removed text, never matched
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    // A stored text that the checked text matched
+    public record Match(long id, long groupId, int matchingBands) {
+    }
+
+    private final int bands;
+    private final int rows;
+    private final int minMatchingBands;
+    private final int minLength;
+    private final long[] multipliers;
+    private final long[] increments;
+    // Per band: (fingerprint of the band hash << 32) | sequence number, 0 for an empty slot
+    private final long[][] tables;
+    private final int mask;
+    // Id and group (e.g. the product) of the text with a sequence number, at sequence & mask
+    private final long[] ids;
+    private final long[] groupIds;
+    // Sequence number of every id whose slot hasn't been overwritten, so that removing a text doesn't scan the slots
+    private final Map<Long, Integer> sequences = new HashMap<>();
+    private int lastSequence;
+
+    public MinHashIndex(int bands, int rows, int minMatchingBands, int tableBits, int minLength) {
+        this.bands = bands;
+        this.rows = rows;
+        this.minMatchingBands = minMatchingBands;
+        this.minLength = minLength;
+        // Fixed seed, signatures must stay comparable across restarts
+        Random random = new Random(0x5eed_2024L);
+        multipliers = new long[bands * rows];
+        increments = new long[bands * rows];
+        for (int i = 0; i < multipliers.length; i++) {
+            multipliers[i] = random.nextLong() | 1;
+            increments[i] = random.nextLong();
+        }
+        tables = new long[bands][1 << tableBits];
+        mask = (1 << tableBits) - 1;
+        ids = new long[1 << tableBits];
+        groupIds = new long[1 << tableBits];
+    }
+
+    // MinHash signature of a text, null if it is too short to compare meaningfully.
+    // Thread safe, and the expensive part, so it is kept out of the synchronized addAndMatch.
+    public int[] signature(String text) {
+        String normalized = normalize(text);
+        if (normalized.length() < Math.max(minLength, SHINGLE_LENGTH)) {
+            return null;
+        }
+        int[] signature = new int[bands * rows];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int start = 0; start + SHINGLE_LENGTH <= normalized.length(); start++) {
+            long shingle = 0;
+            for (int i = start; i < start + SHINGLE_LENGTH; i++) {
+                shingle = shingle * 0x100000001b3L + normalized.charAt(i);
+            }
+            shingle = mix(shingle);
+            for (int h = 0; h < signature.length; h++) {
+                // Multiply-shift universal hashing, the upper 31 bits of a*x+b
+                int value = (int) ((shingle * multipliers[h] + increments[h]) >>> 33);
+                if (value < signature[h]) {
+                    signature[h] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    // Find the stored text this one nearly repeats, preferring one of the same group, then store this one under
+    // the given id and group unless `keep` turns the match down. Returns null when no stored text shares enough bands.
+    public synchronized Match addAndMatch(int[] signature, long id, long groupId, Predicate<Match> keep) {
+        int sequence = lastSequence == Integer.MAX_VALUE ? 1 : lastSequence + 1;  // 0 marks an empty slot
+        // Each band goes into its table twice, on its own and combined with the group, so that a text repeated
+        // in one group is still found after copies in many other groups have taken over the plain slots
+        long[] keys = new long[2 * bands];
+        for (int band = 0; band < bands; band++) {
+            long key = bandKey(signature, band);
+            keys[band] = key;
+            keys[bands + band] = fingerprinted(mix(key ^ mix(groupId)));
+        }
+        Match match = bestMatch(keys, bands, sequence, id);
+        if (match == null) {
+            match = bestMatch(keys, 0, sequence, id);
+        }
+        if (match != null && !keep.test(match)) {
+            return match;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            tables[i % bands][(int) keys[i] & mask] = (keys[i] & FINGERPRINT) | sequence;
+        }
+        int slot = sequence & mask;
+        Integer overwritten = sequences.get(ids[slot]);
+        if (overwritten != null && (overwritten & mask) == slot) {
+            sequences.remove(ids[slot]);
+        }
+        Integer previous = sequences.put(id, sequence);
+        if (previous != null) {
+            ids[previous & mask] = REMOVED;
+        }
+        ids[slot] = id;
+        groupIds[slot] = groupId;
+        lastSequence = sequence;
+        return match;
+    }
+
+    // Forget the stored text with this id, e.g. because it was never committed or has been deleted
+    public synchronized void remove(long id) {
+        Integer sequence = sequences.remove(id);
+        if (sequence != null) {
+            ids[sequence & mask] = REMOVED;
+        }
+    }
+
+    // The stored text with the most bands among keys[from, from + bands), if it has at least minMatchingBands
+    private Match bestMatch(long[] keys, int from, int sequence, long id) {
+        // Stored texts sharing a band with this one and how many, a handful at most
+        int[] candidates = new int[bands];
+        int[] matchingBands = new int[bands];
+        int candidateCount = 0;
+        for (int band = 0; band < bands; band++) {
+            long key = keys[from + band];
+            long entry = tables[band][(int) key & mask];
+            if (entry == 0 || (entry & FINGERPRINT) != (key & FINGERPRINT)) {
+                continue;
+            }
+            int storedSequence = (int) entry;
+            int age = sequence - storedSequence;
+            if ((age < 0 ? age + Integer.MAX_VALUE : age) > mask) {
+                continue;  // Its id has been overwritten since
+            }
+            int found = 0;
+            while (found < candidateCount && candidates[found] != storedSequence) {
+                found++;
+            }
+            if (found == candidateCount) {
+                candidates[candidateCount++] = storedSequence;
+            }
+            matchingBands[found]++;
+        }
+        Match best = null;
+        for (int i = 0; i < candidateCount; i++) {
+            int stored = candidates[i] & mask;
+            // An edited text matches its own earlier version, that is no duplicate
+            if (matchingBands[i] >= minMatchingBands && ids[stored] != id && ids[stored] != REMOVED
+                    && (best == null || matchingBands[i] > best.matchingBands())) {
+                best = new Match(ids[stored], groupIds[stored], matchingBands[i]);
+            }
+        }
+        return best;
+    }
+
+    private long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = key * 0x9e3779b97f4a7c15L + signature[i];
+        }
+        return fingerprinted(mix(key));
+    }
+
+    // The upper half of a key is its fingerprint, kept non-zero so that no entry is 0
+    private static long fingerprinted(long key) {
+        return (key & FINGERPRINT) == 0 ? key | 0x1_0000_0000L : key;
+    }
+
+    // Lower case letters and digits, everything else becomes a single space
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int end = normalized.length();
+        return space && end > 0 ? normalized.substring(0, end - 1) : normalized.toString();
+    }
+
+    // Finalizer of MurmurHash3, spreads every input bit over the whole result
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
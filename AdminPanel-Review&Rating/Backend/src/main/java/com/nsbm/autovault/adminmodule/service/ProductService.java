@@ -1,14 +1,17 @@
 package com.nsbm.autovault.adminmodule.service;
 
 import com.nsbm.autovault.adminmodule.dto.ProductDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductWithRatingDTO;
+import com.nsbm.autovault.adminmodule.dto.ProductWithRatingPageDTO;
+import com.nsbm.autovault.adminmodule.mapper.ProductMapper;
 import com.nsbm.autovault.adminmodule.model.Product;
 import com.nsbm.autovault.adminmodule.repo.ProductRepo;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -20,27 +23,45 @@ public class ProductService {
     private ProductRepo productRepo;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
 
 
     public List<ProductDTO> getALlProducts() {
         List<Product> productList = productRepo.findAll();
-        return modelMapper.map(productList, new TypeToken<List<ProductDTO>>() {
-        }.getType());
+        return productMapper.toDTOs(productList);
+    }
+
+    // One page of products with their review count and average rating, read with one query.
+    // The cursor is the id of the last product of the previous page.
+    @Transactional(readOnly = true)
+    public ProductWithRatingPageDTO getProductsWithRatings(String cursor, int size) {
+        int afterId = cursor == null || cursor.isEmpty() ? Integer.MIN_VALUE : Integer.parseInt(cursor);
+        // One extra row tells whether there is a next page without counting
+        List<Object[]> rows = productRepo.findWithRatingsAfter(afterId, Limit.of(size + 1));
+        boolean hasNext = rows.size() > size;
+        List<ProductWithRatingDTO> products = new ArrayList<>(Math.min(rows.size(), size));
+        for (Object[] row : rows.subList(0, Math.min(rows.size(), size))) {
+            long reviewCount = row[1] == null ? 0 : (Long) row[1];
+            long ratingSum = row[2] == null ? 0 : (Long) row[2];
+            products.add(new ProductWithRatingDTO(productMapper.toDTO((Product) row[0]), reviewCount,
+                    reviewCount == 0 ? 0 : (double) ratingSum / reviewCount));
+        }
+        String nextCursor = hasNext ? String.valueOf(products.get(products.size() - 1).getProduct().getId()) : null;
+        return new ProductWithRatingPageDTO(products, nextCursor, hasNext);
     }
 
     public ProductDTO saveProduct(ProductDTO productDTO){
-        productRepo.save(modelMapper.map(productDTO, Product.class));
+        productRepo.save(productMapper.toEntity(productDTO));
         return productDTO ;
     }
 
     public ProductDTO updateProduct(ProductDTO productDTO){
-        productRepo.save(modelMapper.map(productDTO, Product.class));
+        productRepo.save(productMapper.toEntity(productDTO));
         return productDTO ;
     }
 
     public String deleteProduct(ProductDTO productDTO){
-        productRepo.delete(modelMapper.map(productDTO, Product.class));
+        productRepo.delete(productMapper.toEntity(productDTO));
         return "Product Deleted";
     }
 }
\ No newline at end of file
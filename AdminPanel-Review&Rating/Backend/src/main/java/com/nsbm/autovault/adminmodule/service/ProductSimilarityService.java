@@ -0,0 +1,526 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.dto.SimilarProductDTO;
+import com.nsbm.autovault.adminmodule.model.Review;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// "Customers also rated": for every product, the products whose ratings by the same reviewers are most alike,
+// by cosine similarity of their rating vectors (one dimension per reviewer). Only reviews with a reviewerId count.
+//
+// Of several reviews of a product by one reviewer only the latest counts, and reviewers with more than
+// max-reviewer-reviews reviewed products are left out entirely (of the co-ratings and of the norms);
+// the full build and the incremental refresh apply both rules, so they compute the same scores.
+//
+// A full build loads all ratings into primitive sparse vectors (per product and per reviewer) and computes
+// the similar products of every product in parallel on a ForkJoinPool. Review changes mark their product and
+// reviewer dirty; every refresh-seconds the rows of the dirty products (the product and everything its reviewer
+// rated) are recomputed from the database and patched into the neighbour lists of the products they touch.
+// The patched lists are close but not exact (a product that left someone's top list isn't replaced),
+// the periodic full build puts everything right again.
+// Queries read a precomputed list, the cost only depends on the number of results.
+@Service
+
+public class ProductSimilarityService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSimilarityService.class);
+    private static final int MIN_LEAF_PRODUCTS = 64;  // Fewest products per fork-join leaf task
+    private static final int IN_CHUNK = 1000;
+    private static final String VALID_RATING = "rating BETWEEN 1 AND 5";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // Similar products kept per product
+    @Value("${autovault.reviews.similar.neighbors:20}")
+    private int neighbors;
+
+    // Reviewers two products need in common before their similarity counts
+    @Value("${autovault.reviews.similar.min-co-raters:2}")
+    private int minCoRaters;
+
+    // Reviewers with more reviews than this are left out of the pair counting, their cost grows with the square
+    @Value("${autovault.reviews.similar.max-reviewer-reviews:1000}")
+    private int maxReviewerReviews;
+
+    @Value("${autovault.reviews.similar.refresh-seconds:30}")
+    private long refreshSeconds;
+
+    @Value("${autovault.reviews.similar.full-rebuild-minutes:360}")
+    private long fullRebuildMinutes;
+
+    // Above this many dirty products a refresh does a full build instead
+    @Value("${autovault.reviews.similar.max-incremental-products:1000}")
+    private int maxIncrementalProducts;
+
+    private volatile ConcurrentHashMap<Long, Neighbors> index = new ConcurrentHashMap<>();
+    private final Set<Long> dirtyProducts = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyReviewers = ConcurrentHashMap.newKeySet();
+    // Reviewers with more than maxReviewerReviews reviewed products, found by the full build
+    // and kept up to date for the dirty reviewers by every refresh. Only used on the scheduler thread.
+    private Set<Long> powerReviewers = new HashSet<>();
+    private final ForkJoinPool pool = new ForkJoinPool();
+    // All index updates run on this thread, one at a time
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-similarity");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Similar products of one product, best first
+    private record Neighbors(long[] productIds, double[] scores) {
+    }
+
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        markDirty(event.before());
+        markDirty(event.after());
+    }
+
+    private void markDirty(Review review) {
+        if (review != null && review.getReviewerId() != null && review.getProductId() != null) {
+            dirtyProducts.add(review.getProductId());
+            dirtyReviewers.add(review.getReviewerId());
+        }
+    }
+
+    // Up to `limit` products most similar to the given one
+    public List<SimilarProductDTO> getSimilar(Long productId, int limit) {
+        Neighbors found = index.get(productId);
+        if (found == null) {
+            return Collections.emptyList();
+        }
+        int count = Math.min(limit, found.productIds().length);
+        List<SimilarProductDTO> similar = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            similar.add(new SimilarProductDTO(found.productIds()[i], found.scores()[i]));
+        }
+        return similar;
+    }
+
+    // Build in the background, the application doesn't wait for it
+    @Override
+    public void run(ApplicationArguments args) {
+        scheduler.execute(this::rebuildSafely);
+        scheduler.scheduleWithFixedDelay(this::refreshSafely, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(this::rebuildSafely, fullRebuildMinutes, fullRebuildMinutes, TimeUnit.MINUTES);
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not build the similar products index", e);
+        }
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the similar products index", e);
+        }
+    }
+
+    // Full build from every rating in the database
+    void rebuild() {
+        long started = System.nanoTime();
+        // Changes committed from here on are also in the data loaded below, or will be refreshed afterwards
+        dirtyProducts.clear();
+        dirtyReviewers.clear();
+
+        RatingMatrix matrix = RatingMatrix.load(jdbcTemplate, maxReviewerReviews);
+        Neighbors[] rows = new Neighbors[matrix.productIds.length];
+        // Each leaf allocates accumulators as long as the product list, a few leaves per thread are enough to balance
+        int leafSize = Math.max(MIN_LEAF_PRODUCTS, rows.length / (pool.getParallelism() * 8));
+        pool.invoke(new BuildTask(matrix, rows, 0, rows.length, leafSize));
+
+        ConcurrentHashMap<Long, Neighbors> rebuilt = new ConcurrentHashMap<>(rows.length * 2);
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != null) {
+                rebuilt.put(matrix.productIds[i], rows[i]);
+            }
+        }
+        index = rebuilt;
+        powerReviewers = matrix.powerReviewers(maxReviewerReviews);
+        log.info("Built the similar products of {} products from {} ratings in {} ms", rebuilt.size(),
+                matrix.ratingCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    // Recompute the products changed since the last refresh
+    void refresh() {
+        if (dirtyProducts.isEmpty()) {
+            return;
+        }
+        Set<Long> products = drain(dirtyProducts);
+        List<Long> reviewers = new ArrayList<>(drain(dirtyReviewers));
+        updatePowerReviewers(reviewers);
+        // Similarities between the other products a reviewer rated changed too
+        for (int from = 0; from < reviewers.size() && products.size() <= maxIncrementalProducts; from += IN_CHUNK) {
+            products.addAll(namedJdbcTemplate.queryForList(
+                    "SELECT DISTINCT product_id FROM review WHERE reviewer_id IN (:reviewers)",
+                    Map.of("reviewers", reviewers.subList(from, Math.min(reviewers.size(), from + IN_CHUNK))), Long.class));
+        }
+        if (products.size() > maxIncrementalProducts) {
+            rebuild();
+            return;
+        }
+        try {
+            for (Long productId : products) {
+                recompute(productId);
+            }
+        } catch (RuntimeException e) {
+            dirtyProducts.addAll(products);  // Try again with the next refresh
+            throw e;
+        }
+        log.debug("Refreshed the similar products of {} products", products.size());
+    }
+
+    private static Set<Long> drain(Set<Long> dirty) {
+        Set<Long> drained = new HashSet<>();
+        for (Long id : dirty) {
+            if (dirty.remove(id)) {
+                drained.add(id);
+            }
+        }
+        return drained;
+    }
+
+    // Recount the reviewed products of reviewers whose reviews changed
+    private void updatePowerReviewers(List<Long> reviewers) {
+        for (int from = 0; from < reviewers.size(); from += IN_CHUNK) {
+            List<Long> chunk = reviewers.subList(from, Math.min(reviewers.size(), from + IN_CHUNK));
+            chunk.forEach(powerReviewers::remove);
+            powerReviewers.addAll(namedJdbcTemplate.queryForList(
+                    "SELECT reviewer_id FROM review WHERE reviewer_id IN (:reviewers) AND product_id IS NOT NULL AND "
+                            + VALID_RATING + " GROUP BY reviewer_id HAVING COUNT(DISTINCT product_id) > :max",
+                    Map.of("reviewers", chunk, "max", maxReviewerReviews), Long.class));
+        }
+    }
+
+    // Compute the similarities of one product from the database and update its list
+    // and its entry in the lists of the products it is compared with.
+    // Same rules as the full build: the latest review per reviewer and product (MAX(id)), no power reviewers.
+    private void recompute(Long productId) {
+        Map<Long, Integer> ownRatings = new HashMap<>();  // Reviewer -> rating of this product
+        jdbcTemplate.query("SELECT r.reviewer_id, r.rating FROM review r WHERE r.id IN ("
+                        + "SELECT MAX(id) FROM review WHERE product_id = ? AND reviewer_id IS NOT NULL AND " + VALID_RATING
+                        + " GROUP BY reviewer_id)",
+                rs -> {
+                    ownRatings.put(rs.getLong(1), rs.getInt(2));
+                }, productId);
+        ownRatings.keySet().removeAll(powerReviewers);
+
+        Map<Long, double[]> pairs = new HashMap<>();  // Other product -> {dot product, co-raters}
+        List<Long> reviewers = new ArrayList<>(ownRatings.keySet());
+        for (int from = 0; from < reviewers.size(); from += IN_CHUNK) {
+            namedJdbcTemplate.query("SELECT r.reviewer_id, r.product_id, r.rating FROM review r WHERE r.id IN ("
+                            + "SELECT MAX(id) FROM review WHERE reviewer_id IN (:reviewers) AND product_id IS NOT NULL AND "
+                            + VALID_RATING + " GROUP BY reviewer_id, product_id)",
+                    Map.of("reviewers", reviewers.subList(from, Math.min(reviewers.size(), from + IN_CHUNK))),
+                    rs -> {
+                        long other = rs.getLong(2);
+                        if (other != productId) {
+                            double[] pair = pairs.computeIfAbsent(other, id -> new double[2]);
+                            pair[0] += ownRatings.get(rs.getLong(1)) * rs.getInt(3);
+                            pair[1]++;
+                        }
+                    });
+        }
+        pairs.values().removeIf(pair -> pair[1] < minCoRaters);
+
+        List<Long> involved = new ArrayList<>(pairs.keySet());
+        involved.add(productId);
+        Map<Long, Double> norms = new HashMap<>();
+        String withoutPowerReviewers = powerReviewers.isEmpty() ? "" : " AND r.reviewer_id NOT IN (:power)";
+        for (int from = 0; from < involved.size(); from += IN_CHUNK) {
+            namedJdbcTemplate.query("SELECT r.product_id, SUM(r.rating * r.rating) FROM review r WHERE r.id IN ("
+                            + "SELECT MAX(id) FROM review WHERE product_id IN (:ids) AND reviewer_id IS NOT NULL AND "
+                            + VALID_RATING + " GROUP BY product_id, reviewer_id)" + withoutPowerReviewers
+                            + " GROUP BY r.product_id",
+                    Map.of("ids", involved.subList(from, Math.min(involved.size(), from + IN_CHUNK)),
+                            "power", powerReviewers),
+                    rs -> {
+                        norms.put(rs.getLong(1), Math.sqrt(rs.getDouble(2)));
+                    });
+        }
+
+        double ownNorm = norms.getOrDefault(productId, 0.0);
+        TopK top = new TopK(neighbors);
+        for (Map.Entry<Long, double[]> pair : pairs.entrySet()) {
+            double otherNorm = norms.getOrDefault(pair.getKey(), 0.0);
+            if (ownNorm == 0 || otherNorm == 0) {
+                continue;
+            }
+            double score = pair.getValue()[0] / (ownNorm * otherNorm);
+            top.offer(pair.getKey(), score);
+            patch(pair.getKey(), productId, score);
+        }
+        Neighbors row = top.toNeighbors();
+        if (row == null) {
+            index.remove(productId);
+        } else {
+            index.put(productId, row);
+        }
+    }
+
+    // Put `productId` with its new score into the list of `owner`, if it belongs in its top list
+    private void patch(long owner, long productId, double score) {
+        Neighbors current = index.get(owner);
+        TopK top = new TopK(neighbors);
+        if (current != null) {
+            for (int i = 0; i < current.productIds().length; i++) {
+                if (current.productIds()[i] != productId) {
+                    top.offer(current.productIds()[i], current.scores()[i]);
+                }
+            }
+        }
+        top.offer(productId, score);
+        index.put(owner, top.toNeighbors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    // All ratings as two sparse matrices in compressed rows: products x reviewers and reviewers x products.
+    // Rows are ranges of parallel primitive arrays, dense indexes instead of ids.
+    private static final class RatingMatrix {
+        private long[] productIds;
+        private long[] reviewerIds;
+        private int[] productStart;     // Row i is [productStart[i], productStart[i + 1])
+        private int[] productReviewer;
+        private float[] productRating;
+        private double[] productNorm;
+        private int[] reviewerStart;
+        private int[] reviewerProduct;
+        private float[] reviewerRating;
+
+        private int ratingCount() {
+            return productReviewer.length;
+        }
+
+        // Ids of the reviewers left out, the ones with more than maxReviewerReviews products
+        private Set<Long> powerReviewers(int maxReviewerReviews) {
+            Set<Long> power = new HashSet<>();
+            for (int r = 0; r < reviewerIds.length; r++) {
+                if (reviewerStart[r + 1] - reviewerStart[r] > maxReviewerReviews) {
+                    power.add(reviewerIds[r]);
+                }
+            }
+            return power;
+        }
+
+        private static RatingMatrix load(JdbcTemplate jdbcTemplate, int maxReviewerReviews) {
+            // Sorted by product, then reviewer; of several reviews by one reviewer the latest counts
+            long[][] columns = {new long[1024], new long[1024], new long[1024]};
+            int[] size = {0};
+            jdbcTemplate.query("SELECT product_id, reviewer_id, rating FROM review "
+                    + "WHERE reviewer_id IS NOT NULL AND product_id IS NOT NULL AND " + VALID_RATING
+                    + " ORDER BY product_id, reviewer_id, id", rs -> {
+                long product = rs.getLong(1);
+                long reviewer = rs.getLong(2);
+                int n = size[0];
+                if (n > 0 && columns[0][n - 1] == product && columns[1][n - 1] == reviewer) {
+                    columns[2][n - 1] = rs.getInt(3);
+                    return;
+                }
+                if (n == columns[0].length) {
+                    for (int c = 0; c < columns.length; c++) {
+                        columns[c] = Arrays.copyOf(columns[c], n * 2);
+                    }
+                }
+                columns[0][n] = product;
+                columns[1][n] = reviewer;
+                columns[2][n] = rs.getInt(3);
+                size[0] = n + 1;
+            });
+            return build(columns[0], columns[1], columns[2], size[0], maxReviewerReviews);
+        }
+
+        private static RatingMatrix build(long[] products, long[] reviewers, long[] ratings, int size,
+                                          int maxReviewerReviews) {
+            RatingMatrix matrix = new RatingMatrix();
+            long[] reviewerIds = Arrays.stream(reviewers, 0, size).sorted().distinct().toArray();
+            matrix.reviewerIds = reviewerIds;
+
+            int productCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || products[i] != products[i - 1]) {
+                    productCount++;
+                }
+            }
+            matrix.productIds = new long[productCount];
+            matrix.productStart = new int[productCount + 1];
+            matrix.productReviewer = new int[size];
+            matrix.productRating = new float[size];
+            matrix.productNorm = new double[productCount];
+            int[] reviewerCounts = new int[reviewerIds.length + 1];
+            int product = -1;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || products[i] != products[i - 1]) {
+                    product++;
+                    matrix.productIds[product] = products[i];
+                    matrix.productStart[product] = i;
+                }
+                int reviewer = Arrays.binarySearch(reviewerIds, reviewers[i]);
+                matrix.productReviewer[i] = reviewer;
+                matrix.productRating[i] = ratings[i];
+                reviewerCounts[reviewer + 1]++;
+            }
+            matrix.productStart[productCount] = size;
+            // Power reviewers don't count in the norms either, they are not in any dot product
+            for (int p = 0; p < productCount; p++) {
+                double norm = 0;
+                for (int k = matrix.productStart[p]; k < matrix.productStart[p + 1]; k++) {
+                    if (reviewerCounts[matrix.productReviewer[k] + 1] <= maxReviewerReviews) {
+                        norm += (double) matrix.productRating[k] * matrix.productRating[k];
+                    }
+                }
+                matrix.productNorm[p] = Math.sqrt(norm);
+            }
+
+            // Transpose
+            matrix.reviewerStart = new int[reviewerIds.length + 1];
+            for (int r = 0; r < reviewerIds.length; r++) {
+                matrix.reviewerStart[r + 1] = matrix.reviewerStart[r] + reviewerCounts[r + 1];
+            }
+            matrix.reviewerProduct = new int[size];
+            matrix.reviewerRating = new float[size];
+            int[] next = Arrays.copyOf(matrix.reviewerStart, reviewerIds.length);
+            for (int p = 0; p < productCount; p++) {
+                for (int k = matrix.productStart[p]; k < matrix.productStart[p + 1]; k++) {
+                    int slot = next[matrix.productReviewer[k]]++;
+                    matrix.reviewerProduct[slot] = p;
+                    matrix.reviewerRating[slot] = matrix.productRating[k];
+                }
+            }
+            return matrix;
+        }
+    }
+
+    // Computes the rows of a range of products, splitting the range until it is small enough
+    private final class BuildTask extends RecursiveAction {
+
+        private final RatingMatrix matrix;
+        private final Neighbors[] rows;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+
+        private BuildTask(RatingMatrix matrix, Neighbors[] rows, int from, int to, int leafSize) {
+            this.matrix = matrix;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > leafSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new BuildTask(matrix, rows, from, middle, leafSize),
+                        new BuildTask(matrix, rows, middle, to, leafSize));
+                return;
+            }
+            int productCount = matrix.productIds.length;
+            // Dense accumulators indexed by product, reset after each row through the touched list
+            double[] dot = new double[productCount];
+            int[] coRaters = new int[productCount];
+            int[] touched = new int[productCount];
+            for (int product = from; product < to; product++) {
+                int touchedCount = 0;
+                for (int k = matrix.productStart[product]; k < matrix.productStart[product + 1]; k++) {
+                    int reviewer = matrix.productReviewer[k];
+                    int start = matrix.reviewerStart[reviewer];
+                    int end = matrix.reviewerStart[reviewer + 1];
+                    if (end - start > maxReviewerReviews) {
+                        continue;
+                    }
+                    float rating = matrix.productRating[k];
+                    for (int m = start; m < end; m++) {
+                        int other = matrix.reviewerProduct[m];
+                        if (other == product) {
+                            continue;
+                        }
+                        if (coRaters[other]++ == 0) {
+                            touched[touchedCount++] = other;
+                        }
+                        dot[other] += rating * matrix.reviewerRating[m];
+                    }
+                }
+                TopK top = new TopK(neighbors);
+                for (int t = 0; t < touchedCount; t++) {
+                    int other = touched[t];
+                    if (coRaters[other] >= minCoRaters) {
+                        top.offer(matrix.productIds[other],
+                                dot[other] / (matrix.productNorm[product] * matrix.productNorm[other]));
+                    }
+                    dot[other] = 0;
+                    coRaters[other] = 0;
+                }
+                rows[product] = top.toNeighbors();
+            }
+        }
+    }
+
+    // The k best scores seen, kept sorted in small arrays (k is a few dozen at most)
+    private static final class TopK {
+        private final long[] ids;
+        private final double[] scores;
+        private int size;
+
+        private TopK(int k) {
+            ids = new long[k];
+            scores = new double[k];
+        }
+
+        private void offer(long id, double score) {
+            if (size == ids.length && score <= scores[size - 1]) {
+                return;
+            }
+            int position = size == ids.length ? size - 1 : size++;
+            while (position > 0 && scores[position - 1] < score) {
+                ids[position] = ids[position - 1];
+                scores[position] = scores[position - 1];
+                position--;
+            }
+            ids[position] = id;
+            scores[position] = score;
+        }
+
+        private Neighbors toNeighbors() {
+            return size == 0 ? null : new Neighbors(Arrays.copyOf(ids, size), Arrays.copyOf(scores, size));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.dto.RatingSummaryDTO;
+import com.nsbm.autovault.adminmodule.model.ProductRatingSummary;
+import com.nsbm.autovault.adminmodule.model.Review;
+import com.nsbm.autovault.adminmodule.repo.ProductRatingSummaryRepository;
+import com.nsbm.autovault.adminmodule.repo.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Keeps the per-product rating summaries in step with the review table.
+// The apply methods must run inside the transaction that changes the review.
+@Service
+@Transactional
+@Order(1)  // Backfills before LeaderboardService reads the summaries
+
+public class RatingSummaryService implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RatingSummaryService.class);
+
+    @Autowired
+    private ProductRatingSummaryRepository summaryRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    // Record a review change: `before` is the stored review before the change (null if it is new),
+    // `after` the stored review after it (null if it was deleted)
+    public void applyChange(Review before, Review after) {
+        if (before != null && after != null && before.getProductId() != null
+                && before.getProductId().equals(after.getProductId())) {
+            // Same product, one statement with the net change (nothing at all if the rating is unchanged)
+            long[] delta = delta(after.getRating(), 1);
+            long[] removed = delta(before.getRating(), -1);
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] += removed[i];
+            }
+            apply(after.getProductId(), delta);
+            return;
+        }
+        if (before != null) {
+            apply(before.getProductId(), delta(before.getRating(), -1));
+        }
+        if (after != null) {
+            apply(after.getProductId(), delta(after.getRating(), 1));
+        }
+    }
+
+    // Record a batch of new reviews with one statement per product instead of one per review
+    public void applyAdded(List<Review> reviews) {
+        applyChanges(List.of(), reviews);
+    }
+
+    // Record a batch of changes, reviews as they were before (removed) and as they are now (added),
+    // with one statement per product
+    public void applyChanges(List<Review> removed, List<Review> added) {
+        Map<Long, long[]> deltas = new HashMap<>();
+        addDeltas(deltas, removed, -1);
+        addDeltas(deltas, added, 1);
+        deltas.forEach(this::apply);
+    }
+
+    private static void addDeltas(Map<Long, long[]> deltas, List<Review> reviews, int sign) {
+        for (Review review : reviews) {
+            long[] delta = delta(review.getRating(), sign);
+            long[] total = deltas.computeIfAbsent(review.getProductId(), productId -> new long[delta.length]);
+            for (int i = 0; i < delta.length; i++) {
+                total[i] += delta[i];
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public RatingSummaryDTO getSummary(Long productId) {
+        return summaryRepository.findById(productId)
+                .map(this::toDTO)
+                .orElseGet(() -> empty(productId));
+    }
+
+    // Summaries of several products in the requested order, one query for all of them
+    @Transactional(readOnly = true)
+    public List<RatingSummaryDTO> getSummaries(Collection<Long> productIds) {
+        Map<Long, ProductRatingSummary> found = summaryRepository.findByProductIdIn(productIds).stream()
+                .collect(Collectors.toMap(ProductRatingSummary::getProductId, Function.identity()));
+        List<RatingSummaryDTO> summaries = new ArrayList<>(productIds.size());
+        for (Long productId : productIds) {
+            ProductRatingSummary summary = found.get(productId);
+            summaries.add(summary == null ? empty(productId) : toDTO(summary));
+        }
+        return summaries;
+    }
+
+    // Fill the summary table from the existing reviews the first time the application starts with it
+    @Override
+    public void run(ApplicationArguments args) {
+        if (summaryRepository.count() == 0 && reviewRepository.count() > 0) {
+            int products = summaryRepository.backfill(LocalDateTime.now());
+            log.info("Built the rating summaries of {} products from the existing reviews", products);
+        }
+    }
+
+    // Changes of count, sum and the five star counters caused by adding (sign 1) or removing (sign -1) a rating
+    private static long[] delta(Integer rating, int sign) {
+        long[] delta = new long[7];
+        if (rating != null && rating >= 1 && rating <= 5) {
+            delta[0] = sign;
+            delta[1] = (long) sign * rating;
+            delta[1 + rating] = sign;
+        }
+        return delta;
+    }
+
+    private void apply(Long productId, long[] delta) {
+        boolean changed = false;
+        for (long value : delta) {
+            changed |= value != 0;
+        }
+        if (productId == null || !changed) {
+            return;
+        }
+        summaryRepository.applyDelta(productId, delta[0], delta[1], delta[2], delta[3], delta[4], delta[5], delta[6],
+                LocalDateTime.now());
+    }
+
+    private RatingSummaryDTO toDTO(ProductRatingSummary summary) {
+        double average = summary.getReviewCount() == 0 ? 0 : (double) summary.getRatingSum() / summary.getReviewCount();
+        long[] histogram = {summary.getStar1(), summary.getStar2(), summary.getStar3(), summary.getStar4(), summary.getStar5()};
+        return new RatingSummaryDTO(summary.getProductId(), summary.getReviewCount(), average, histogram, summary.getLastUpdated());
+    }
+
+    private static RatingSummaryDTO empty(Long productId) {
+        return new RatingSummaryDTO(productId, 0, 0, new long[5], null);
+    }
+}
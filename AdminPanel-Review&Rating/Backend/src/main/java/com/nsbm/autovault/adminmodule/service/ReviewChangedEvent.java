@@ -0,0 +1,10 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.model.Review;
+
+// Published inside the transaction that changes a review. `before` is the stored review before the change
+// (null if it is new), `after` the stored review after it (null if it was deleted).
+// Listeners that keep state outside the database should use @TransactionalEventListener,
+// so they only see changes that were committed.
+public record ReviewChangedEvent(Review before, Review after) {
+}
@@ -0,0 +1,189 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.dto.ReviewDTO;
+import com.nsbm.autovault.adminmodule.mapper.ReviewMapper;
+import com.nsbm.autovault.adminmodule.model.Review;
+import com.nsbm.autovault.adminmodule.repo.ReviewIdAllocator;
+import com.nsbm.autovault.adminmodule.repo.ReviewRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Write-behind path for bursts of new reviews. Reviews wait in a bounded queue and a single flusher thread
+// inserts them in batches, one transaction per batch (JDBC batching is configured in application.properties).
+// A batch is written when it is full or when its oldest review has waited flush-interval-ms.
+// The future of a review completes only after its batch has been committed.
+@Service
+
+public class ReviewIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewIngestionService.class);
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private RatingSummaryService ratingSummaryService;
+
+    @Autowired
+    private ReviewMapper reviewMapper;
+
+    @Autowired
+    private ReviewIdAllocator reviewIdAllocator;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DuplicateReviewDetector duplicateReviewDetector;
+
+    @Value("${autovault.reviews.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${autovault.reviews.ingest.flush-interval-ms:50}")
+    private long flushIntervalMillis;
+
+    @Value("${autovault.reviews.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PendingReview> queue;
+    private Thread flusher;
+    private volatile boolean running = true;
+    // submit() holds the read lock from its running check to the offer and stop() takes the write lock,
+    // so nothing is queued once running is false and the flusher writes every queued review before it exits
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+
+    private record PendingReview(Review review, CompletableFuture<ReviewDTO> committed) {
+    }
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        flusher = new Thread(this::flushLoop, "review-ingest");
+        flusher.start();
+    }
+
+    // Queue a new review. Throws RejectedExecutionException right away when the queue is full,
+    // so callers can tell their clients to back off instead of piling up requests,
+    // and DuplicateReviewException when the DuplicateReviewDetector rejects the review.
+    public CompletableFuture<ReviewDTO> submit(ReviewDTO reviewDTO) {
+        if (reviewDTO.getRating() == null || reviewDTO.getRating() < 1 || reviewDTO.getRating() > 5) {
+            throw new IllegalArgumentException("rating must be between 1 and 5");
+        }
+        stopLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new RejectedExecutionException("Review ingestion is shutting down");
+            }
+            Review review = reviewMapper.toEntity(reviewDTO);
+            // Always a new review. The id is assigned now so that reviews still in the queue can be matched as duplicates.
+            review.setId(reviewIdAllocator.next());
+            review.setCreatedAt(LocalDateTime.now());
+            duplicateReviewDetector.inspect(review);
+            PendingReview pending = new PendingReview(review, new CompletableFuture<>());
+            if (!queue.offer(pending)) {
+                duplicateReviewDetector.forget(review);
+                throw new RejectedExecutionException("Review ingestion queue is full");
+            }
+            return pending.committed();
+        } finally {
+            stopLock.readLock().unlock();
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingReview> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReview first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Collect more until the batch is full or the first review has waited long enough
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (queue.drainTo(batch, batchSize - batch.size()) == 0) {
+                        PendingReview next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stop();  // Write what has been collected, the loop then drains the rest
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingReview> batch) {
+        List<Review> reviews = new ArrayList<>(batch.size());
+        for (PendingReview pending : batch) {
+            reviews.add(pending.review());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                reviewRepository.insertAll(reviews);
+                ratingSummaryService.applyAdded(reviews);
+                for (Review review : reviews) {
+                    eventPublisher.publishEvent(new ReviewChangedEvent(null, review));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not store a batch of {} reviews", batch.size(), e);
+            for (PendingReview pending : batch) {
+                duplicateReviewDetector.forget(pending.review());
+                pending.committed().completeExceptionally(e);
+            }
+            return;
+        }
+        // Committed, now the ids are final and durable
+        for (PendingReview pending : batch) {
+            pending.committed().complete(reviewMapper.toDTO(pending.review()));
+        }
+    }
+
+    // Stop taking reviews and wait until the queued ones are written. The flusher notices within one
+    // flush interval; it isn't interrupted because that could break a JDBC call in progress.
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        stop();
+        flusher.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    private void stop() {
+        stopLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.nsbm.autovault.adminmodule.dto.ReviewModerationResultDTO;
+import com.nsbm.autovault.adminmodule.model.Review;
+import com.nsbm.autovault.adminmodule.repo.ReviewFilter;
+import com.nsbm.autovault.adminmodule.repo.ReviewRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Bulk delete and update of reviews for moderators, e.g. clearing a spam wave in one call.
+// Matching reviews are handled in chunks of chunk-size, each in its own transaction: the chunk is selected and locked,
+// changed with one DELETE or UPDATE statement, and the rating summaries get one statement per product.
+// Every changed review is published as a ReviewChangedEvent, so the leaderboards, streams and similar products follow.
+// A failure stops the operation but keeps the chunks committed before it.
+@Service
+
+public class ReviewModerationService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewModerationService.class);
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private RatingSummaryService ratingSummaryService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DuplicateReviewDetector duplicateReviewDetector;
+
+    @Value("${autovault.reviews.moderation.chunk-size:1000}")
+    private int chunkSize;
+
+    // Changes of a bulk update, see ReviewBulkUpdateDTO
+    private record Update(Integer rating, String comment, boolean clearDuplicateOf) {
+    }
+
+    // What one chunk did
+    private record Chunk(int affected, long lastId) {
+    }
+
+    public ReviewModerationResultDTO deleteReviews(ReviewFilter filter) {
+        return moderate(filter, null);
+    }
+
+    public ReviewModerationResultDTO updateReviews(ReviewFilter filter, Integer rating, String comment,
+                                                   boolean clearDuplicateOf) {
+        if (rating != null && (rating < 1 || rating > 5)) {
+            throw new IllegalArgumentException("rating must be between 1 and 5");
+        }
+        if (rating == null && comment == null && !clearDuplicateOf) {
+            throw new IllegalArgumentException("Nothing to update");
+        }
+        return moderate(filter, new Update(rating, comment, clearDuplicateOf));
+    }
+
+    // Delete (update null) or update everything the filter matches
+    private ReviewModerationResultDTO moderate(ReviewFilter filter, Update update) {
+        if (filter == null || filter.isEmpty() || (filter.getIds() != null && filter.getIds().isEmpty())) {
+            throw new IllegalArgumentException("The filter must select some reviews");
+        }
+        if (filter.getRating() != null && (filter.getRating() < 1 || filter.getRating() > 5)) {
+            throw new IllegalArgumentException("rating must be between 1 and 5");
+        }
+        // With ids, each chunk looks up the next slice of them instead of scanning for the filter
+        List<Long> ids = filter.getIds() == null ? null : new ArrayList<>(new TreeSet<>(filter.getIds()));
+        Set<Long> products = new HashSet<>();
+        long affected = 0;
+        long afterId = Long.MIN_VALUE;
+        int next = 0;
+        while (ids == null || next < ids.size()) {
+            List<Long> slice = ids == null ? null : ids.subList(next, Math.min(next + chunkSize, ids.size()));
+            long from = afterId;
+            Chunk chunk = transactionTemplate.execute(status -> moderateChunk(filter, slice, from, update, products));
+            affected += chunk.affected();
+            if (ids != null) {
+                next += slice.size();
+            } else if (chunk.affected() < chunkSize) {
+                break;
+            } else {
+                afterId = chunk.lastId();  // Updated reviews may still match, carry on after them
+            }
+        }
+        log.info("{} {} reviews of {} products", update == null ? "Deleted" : "Updated", affected, products.size());
+        return new ReviewModerationResultDTO(affected, products.size());
+    }
+
+    private Chunk moderateChunk(ReviewFilter filter, List<Long> slice, long afterId, Update update, Set<Long> products) {
+        List<Review> before = reviewRepository.findForModeration(filter, slice, afterId, chunkSize);
+        if (before.isEmpty()) {
+            return new Chunk(0, afterId);
+        }
+        List<Long> ids = new ArrayList<>(before.size());
+        for (Review review : before) {
+            ids.add(review.getId());
+        }
+        // The loaded reviews keep their old values, the statements below don't touch them
+        List<Review> after;
+        if (update == null) {
+            reviewRepository.deleteAllByIds(ids);
+            after = List.of();
+        } else {
+            reviewRepository.updateAll(ids, update.rating(), update.comment(), update.clearDuplicateOf());
+            after = new ArrayList<>(before.size());
+            for (Review review : before) {
+                after.add(new Review(review.getId(),
+                        update.comment() == null ? review.getComment() : update.comment(),
+                        update.rating() == null ? review.getRating() : update.rating(),
+                        review.getProductId(), review.getReviewerId(), review.getCreatedAt(),
+                        update.clearDuplicateOf() ? null : review.getDuplicateOf()));
+            }
+            if (update.comment() != null) {
+                duplicateReviewDetector.replace(before, after);
+            }
+        }
+        ratingSummaryService.applyChanges(before, after);
+        for (int i = 0; i < before.size(); i++) {
+            eventPublisher.publishEvent(new ReviewChangedEvent(before.get(i), after.isEmpty() ? null : after.get(i)));
+            if (before.get(i).getProductId() != null) {
+                products.add(before.get(i).getProductId());
+            }
+        }
+        return new Chunk(before.size(), ids.get(ids.size() - 1));
+    }
+}
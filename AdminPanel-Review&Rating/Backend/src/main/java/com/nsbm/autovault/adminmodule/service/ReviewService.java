@@ -1,15 +1,21 @@
 package com.nsbm.autovault.adminmodule.service;
 
 import com.nsbm.autovault.adminmodule.dto.ReviewDTO;
+import com.nsbm.autovault.adminmodule.dto.ReviewPageDTO;
+import com.nsbm.autovault.adminmodule.mapper.ReviewMapper;
 import com.nsbm.autovault.adminmodule.model.Review;
+import com.nsbm.autovault.adminmodule.repo.ReviewCursor;
+import com.nsbm.autovault.adminmodule.repo.ReviewIdAllocator;
 import com.nsbm.autovault.adminmodule.repo.ReviewRepository;
+import com.nsbm.autovault.adminmodule.repo.ReviewSort;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @Transactional
@@ -20,31 +26,97 @@ public class ReviewService {
     private ReviewRepository reviewRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ReviewMapper reviewMapper;
+
+    @Autowired
+    private RatingSummaryService ratingSummaryService;
+
+    @Autowired
+    private ReviewIdAllocator reviewIdAllocator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DuplicateReviewDetector duplicateReviewDetector;
 
     public List<ReviewDTO> getAllReviews() {
         List<Review> reviews = reviewRepository.findAll();
-        return modelMapper.map(reviews, new TypeToken<List<ReviewDTO>>() {}.getType());
+        return reviewMapper.toDTOs(reviews);
     }
 
+    // Id 0 (or no id) creates a new review with a generated id, which is returned
     public ReviewDTO saveReview(ReviewDTO reviewDTO) {
-        Review review = modelMapper.map(reviewDTO, Review.class);
-        reviewRepository.save(review);
-        return reviewDTO;
+        Review review = reviewMapper.toEntity(reviewDTO);
+        if (review.getId() == 0) {
+            review.setId(null);
+        }
+        return reviewMapper.toDTO(store(review));
     }
     public ReviewDTO updateReview(ReviewDTO reviewDTO) {
-        Review review = modelMapper.map(reviewDTO, Review.class);
-        reviewRepository.save(review);
-        return reviewDTO;
+        return reviewMapper.toDTO(store(reviewMapper.toEntity(reviewDTO)));
     }
     public String deleteReview(ReviewDTO reviewDTO) {
-        Review review = modelMapper.map(reviewDTO, Review.class);
-        reviewRepository.delete(review);
+        reviewRepository.findByIdForUpdate((long) reviewDTO.getId()).ifPresent(existing -> {
+            Review before = copyOf(existing);
+            reviewRepository.delete(existing);
+            ratingSummaryService.applyChange(before, null);
+            eventPublisher.publishEvent(new ReviewChangedEvent(before, null));
+        });
         return "Review Deleted";
     }
     public List<ReviewDTO> getReviewsByProductId(Long productId) {
         List<Review> reviews = reviewRepository.findByProductId(productId);
-        return modelMapper.map(reviews, new TypeToken<List<ReviewDTO>>() {}.getType());
+        return reviewMapper.toDTOs(reviews);
+    }
+
+    // One page of reviews, of one product or of all products when productId is null
+    @Transactional(readOnly = true)
+    public ReviewPageDTO getReviewPage(Long productId, ReviewSort sort, String cursor, int size) {
+        ReviewCursor after = cursor == null || cursor.isEmpty() ? null : ReviewCursor.decode(cursor, sort);
+        // One extra row tells whether there is a next page without counting
+        List<Review> reviews = reviewRepository.findPage(productId, sort, after, size + 1);
+        String nextCursor = null;
+        if (reviews.size() > size) {
+            reviews = reviews.subList(0, size);
+            nextCursor = ReviewCursor.after(reviews.get(size - 1), sort).encode();
+        }
+        List<ReviewDTO> page = reviewMapper.toDTOs(reviews);
+        return new ReviewPageDTO(page, nextCursor, nextCursor != null);
+    }
+
+    // Save a new or changed review and update the rating summary in the same transaction.
+    // Saving with the id of an existing review replaces that review, any other review is inserted with a new id
+    // (ids chosen by the client could collide with the ones the allocator hands out).
+    // New and changed comments go through the DuplicateReviewDetector first, which may throw DuplicateReviewException.
+    private Review store(Review review) {
+        Review before = review.getId() == null ? null
+                : reviewRepository.findByIdForUpdate(review.getId()).map(this::copyOf).orElse(null);
+        Review saved;
+        if (before == null) {
+            review.setId(reviewIdAllocator.next());
+            review.setCreatedAt(LocalDateTime.now());
+            duplicateReviewDetector.inspect(review);
+            duplicateReviewDetector.forgetOnRollback(review);
+            reviewRepository.insertAll(List.of(review));
+            saved = review;
+        } else {
+            review.setCreatedAt(before.getCreatedAt());
+            if (Objects.equals(before.getComment(), review.getComment())) {
+                review.setDuplicateOf(before.getDuplicateOf());
+            } else {
+                duplicateReviewDetector.inspectChange(before, review);
+            }
+            saved = reviewRepository.save(review);
+        }
+        ratingSummaryService.applyChange(before, saved);
+        eventPublisher.publishEvent(new ReviewChangedEvent(before, saved));
+        return saved;
+    }
+
+    // The loaded entity is updated in place by save(), keep the old values apart
+    private Review copyOf(Review review) {
+        return new Review(review.getId(), review.getComment(), review.getRating(), review.getProductId(),
+                review.getReviewerId(), review.getCreatedAt(), review.getDuplicateOf());
     }
-    
 }
@@ -0,0 +1,258 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nsbm.autovault.adminmodule.dto.ReviewStreamEventDTO;
+import com.nsbm.autovault.adminmodule.mapper.ReviewMapper;
+import com.nsbm.autovault.adminmodule.model.Review;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Pushes review changes of a product to the clients subscribed to it, as Server-Sent Events.
+// Connections don't hold a thread: each subscriber has an SseEmitter and a small bounded buffer, and a few shared
+// threads write the buffers out. Every event is serialized once, however many clients receive it.
+// A client that doesn't keep up fills its buffer and is disconnected; EventSource reconnects by itself
+// and the first event of a new subscription is the current rating summary.
+@Service
+
+public class ReviewStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewStreamService.class);
+
+    @Autowired
+    private RatingSummaryService ratingSummaryService;
+
+    @Autowired
+    private ReviewMapper reviewMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${autovault.reviews.stream.threads:4}")
+    private int threads;
+
+    @Value("${autovault.reviews.stream.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${autovault.reviews.stream.max-subscribers:10000}")
+    private int maxSubscribers;
+
+    @Value("${autovault.reviews.stream.timeout-ms:1800000}")
+    private long timeoutMillis;
+
+    @Value("${autovault.reviews.stream.heartbeat-seconds:25}")
+    private long heartbeatSeconds;
+
+    private final ConcurrentHashMap<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    // Products whose summary is being read: false while reading, true if it changed again meanwhile
+    private final ConcurrentHashMap<Long, Boolean> summaryReads = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private ScheduledExecutorService heartbeat;
+
+    private static final class Subscriber {
+        private final Long productId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> buffer;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(Long productId, SseEmitter emitter, int bufferSize) {
+            this.productId = productId;
+            this.emitter = emitter;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Unbounded, but each subscriber has at most one send task queued
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "review-stream-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "review-stream-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Keeps proxies from closing idle connections and finds clients that are gone
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    // Subscribe to the reviews of a product. Throws RejectedExecutionException when there are too many subscribers.
+    public SseEmitter subscribe(Long productId) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new RejectedExecutionException("Too many review stream subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(productId, emitter, bufferSize);
+        subscribers.compute(productId, (id, productSubscribers) -> {
+            Set<Subscriber> updated = productSubscribers == null ? ConcurrentHashMap.newKeySet() : productSubscribers;
+            updated.add(subscriber);
+            return updated;
+        });
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        offer(subscriber, event("summary", ratingSummaryService.getSummary(productId)));
+        return emitter;
+    }
+
+    @TransactionalEventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        Review before = event.before();
+        Review after = event.after();
+        boolean sameProduct = before != null && after != null && Objects.equals(before.getProductId(), after.getProductId());
+        if (after != null) {
+            publishReview(after.getProductId(), sameProduct ? "updated" : "created", after);
+        }
+        if (before != null && !sameProduct) {
+            publishReview(before.getProductId(), "deleted", before);
+        }
+    }
+
+    private void publishReview(Long productId, String type, Review review) {
+        Set<Subscriber> productSubscribers = productId == null ? null : subscribers.get(productId);
+        if (productSubscribers == null) {
+            return;
+        }
+        Set<ResponseBodyEmitter.DataWithMediaType> event =
+                event("review", new ReviewStreamEventDTO(type, reviewMapper.toDTO(review)));
+        for (Subscriber subscriber : productSubscribers) {
+            offer(subscriber, event);
+        }
+        scheduleSummary(productId);
+    }
+
+    // Read the new summary off the committing thread. Reads of one product run one at a time, and a burst of
+    // changes (e.g. an ingestion batch) causes one more read after the current one, not one per review.
+    private void scheduleSummary(Long productId) {
+        boolean[] start = new boolean[1];
+        summaryReads.compute(productId, (id, reading) -> {
+            start[0] = reading == null;
+            return reading != null;
+        });
+        if (start[0]) {
+            executor.execute(() -> publishSummaries(productId));
+        }
+    }
+
+    private void publishSummaries(Long productId) {
+        do {
+            Set<Subscriber> productSubscribers = subscribers.get(productId);
+            if (productSubscribers != null) {
+                try {
+                    Set<ResponseBodyEmitter.DataWithMediaType> event =
+                            event("summary", ratingSummaryService.getSummary(productId));
+                    for (Subscriber subscriber : productSubscribers) {
+                        offer(subscriber, event);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not send the rating summary of product {}", productId, e);
+                }
+            }
+        } while (summaryReads.compute(productId, (id, changedAgain) -> Boolean.TRUE.equals(changedAgain) ? false : null) != null);
+    }
+
+    private void sendHeartbeats() {
+        Set<ResponseBodyEmitter.DataWithMediaType> comment = SseEmitter.event().comment("heartbeat").build();
+        for (Set<Subscriber> productSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : productSubscribers) {
+                offer(subscriber, comment);
+            }
+        }
+    }
+
+    private void offer(Subscriber subscriber, Set<ResponseBodyEmitter.DataWithMediaType> event) {
+        if (subscriber.closed.get()) {
+            return;
+        }
+        if (!subscriber.buffer.offer(event)) {
+            log.debug("Review stream subscriber of product {} is too slow, disconnecting it", subscriber.productId);
+            remove(subscriber);
+            subscriber.emitter.complete();
+            return;
+        }
+        if (subscriber.sending.compareAndSet(false, true)) {
+            executor.execute(() -> send(subscriber));
+        }
+    }
+
+    // Write out the buffer of one subscriber, only one send task per subscriber runs at a time
+    private void send(Subscriber subscriber) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> event;
+            while (!subscriber.closed.get() && (event = subscriber.buffer.poll()) != null) {
+                subscriber.emitter.send(event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            remove(subscriber);  // Disconnected, or already completed
+            subscriber.buffer.clear();
+        } finally {
+            subscriber.sending.set(false);
+        }
+        // Something may have been added after the last poll, while `sending` was still set
+        if (!subscriber.closed.get() && !subscriber.buffer.isEmpty() && subscriber.sending.compareAndSet(false, true)) {
+            executor.execute(() -> send(subscriber));
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscribers.computeIfPresent(subscriber.productId, (id, productSubscribers) -> {
+            productSubscribers.remove(subscriber);
+            return productSubscribers.isEmpty() ? null : productSubscribers;
+        });
+        subscriberCount.decrementAndGet();
+    }
+
+    // Serialize once, the same bytes go to every subscriber
+    private Set<ResponseBodyEmitter.DataWithMediaType> event(String name, Object data) {
+        try {
+            return SseEmitter.event().name(name).data(objectMapper.writeValueAsString(data)).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the " + name + " event", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        for (Set<Subscriber> productSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : productSubscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,49 @@
+package com.nsbm.autovault.adminmodule.repo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import com.nsbm.autovault.adminmodule.model.Review;
+
+/**
+ * Checks that a ReviewCursor survives encode and decode, and that cursors of another sort order are refused
+ */
+class ReviewCursorTest {
+
+	private static final Review REVIEW = new Review(123456789L, "Fine", 4, 7L, 3L, null, null);
+
+	@ParameterizedTest
+	@EnumSource(ReviewSort.class)
+	void roundTrip(ReviewSort sort) {
+		ReviewCursor cursor = ReviewCursor.after(REVIEW, sort);
+
+		ReviewCursor decoded = ReviewCursor.decode(cursor.encode(), sort);
+
+		assertThat(decoded).isEqualTo(cursor);
+		assertThat(decoded.getId()).isEqualTo(123456789L);
+		assertThat(decoded.getRating()).isEqualTo(sort.isByRating() ? 4 : null);
+	}
+
+	@Test
+	void encodedCursorIsUrlSafe() {
+		assertThat(ReviewCursor.after(REVIEW, ReviewSort.HIGHEST).encode()).matches("[A-Za-z0-9_-]+");
+	}
+
+	@Test
+	void cursorOfAnotherSortIsRefused() {
+		String encoded = ReviewCursor.after(REVIEW, ReviewSort.NEWEST).encode();
+
+		assertThatThrownBy(() -> ReviewCursor.decode(encoded, ReviewSort.OLDEST))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void malformedCursorIsRefused() {
+		assertThatThrownBy(() -> ReviewCursor.decode("not a cursor!", ReviewSort.NEWEST))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,75 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that MinHashIndex finds near-duplicate texts, ignores unrelated ones and forgets removed ones
+ */
+class MinHashIndexTest {
+
+	private static final String REVIEW = "Great car, the engine is smooth and quiet and the fuel economy is excellent on long trips";
+	private static final String NEAR_DUPLICATE = "Great car!! The engine is smooth and quiet, and the fuel economy is excellent on long trips.";
+	private static final String UNRELATED = "The seller never answered my calls and the paperwork took three weeks to arrive by mail";
+
+	private final MinHashIndex index = new MinHashIndex(16, 4, 4, 10, 30);
+
+	@Test
+	void findsNearDuplicateOfStoredText() {
+		add(REVIEW, 1, 10);
+
+		MinHashIndex.Match match = add(NEAR_DUPLICATE, 2, 20);
+
+		assertThat(match).isNotNull();
+		assertThat(match.id()).isEqualTo(1);
+		assertThat(match.groupId()).isEqualTo(10);
+	}
+
+	@Test
+	void unrelatedTextIsNoDuplicate() {
+		add(REVIEW, 1, 10);
+
+		assertThat(add(UNRELATED, 2, 10)).isNull();
+	}
+
+	@Test
+	void shortTextHasNoSignature() {
+		assertThat(index.signature("Nice car")).isNull();
+	}
+
+	@Test
+	void removedTextIsNotMatched() {
+		add(REVIEW, 1, 10);
+		index.remove(1);
+
+		assertThat(add(NEAR_DUPLICATE, 2, 10)).isNull();
+	}
+
+	/**
+	 * Storing an id again replaces its text, e.g. when a review is edited
+	 */
+	@Test
+	void storingAnIdAgainReplacesItsText() {
+		add(REVIEW, 1, 10);
+		add(UNRELATED, 1, 10);
+
+		assertThat(add(NEAR_DUPLICATE, 2, 10)).isNull();
+	}
+
+	/**
+	 * Texts that are turned down by the caller are not stored, so later copies keep matching the original
+	 */
+	@Test
+	void rejectedTextIsNotStored() {
+		add(REVIEW, 1, 10);
+		assertThat(index.addAndMatch(index.signature(NEAR_DUPLICATE), 2, 10, match -> false)).isNotNull();
+		index.remove(1);
+
+		assertThat(add(NEAR_DUPLICATE, 3, 10)).isNull();
+	}
+
+	private MinHashIndex.Match add(String text, long id, long groupId) {
+		return index.addAndMatch(index.signature(text), id, groupId, match -> true);
+	}
+}
@@ -0,0 +1,129 @@
+package com.nsbm.autovault.adminmodule.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.nsbm.autovault.adminmodule.dto.SimilarProductDTO;
+import com.nsbm.autovault.adminmodule.model.Review;
+
+/**
+ * Checks that the incremental refresh of the similar products computes the same scores as the full build,
+ * on ratings with a reviewer who reviewed a product twice and a reviewer with too many reviews
+ */
+@DataJpaTest
+@TestPropertySource(properties = "spring.sql.init.mode=never")
+class ProductSimilarityServiceTest {
+
+	private static final int MAX_REVIEWER_REVIEWS = 4;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+	private final List<Review> reviews = new ArrayList<>();
+	private final List<ProductSimilarityService> services = new ArrayList<>();
+
+	/**
+	 * Products 1 to 5. Reviewer 3 rated product 1 twice, only the later 5 counts.
+	 * Reviewer 5 rated all five products, more than MAX_REVIEWER_REVIEWS, and is left out
+	 */
+	@BeforeEach
+	void seed() {
+		review(1, 1, 5);
+		review(1, 2, 4);
+		review(1, 3, 2);
+		review(2, 1, 4);
+		review(2, 2, 5);
+		review(2, 3, 1);
+		review(2, 4, 3);
+		review(3, 1, 2);
+		review(3, 1, 5);
+		review(3, 2, 1);
+		review(3, 4, 4);
+		review(4, 2, 3);
+		review(4, 3, 4);
+		review(4, 4, 5);
+		for (long product = 1; product <= 5; product++) {
+			review(5, product, 5);
+		}
+		review(6, 3, 3);
+		review(6, 4, 2);
+		review(6, 5, 4);
+		review(null, 1, 1);
+		entityManager.flush();
+	}
+
+	@AfterEach
+	void shutdown() {
+		services.forEach(ProductSimilarityService::shutdown);
+	}
+
+	@Test
+	void refreshComputesTheSameScoresAsTheFullBuild() {
+		ProductSimilarityService full = service();
+		full.rebuild();
+
+		ProductSimilarityService incremental = service();
+		reviews.forEach(review -> incremental.onReviewChanged(new ReviewChangedEvent(null, review)));
+		incremental.refresh();
+
+		// Products 1 and 2 share reviewers 1, 2 and 3: (5*4 + 4*5 + 5*1) / (|5,4,5| * |4,5,1,3|)
+		assertThat(full.getSimilar(1L, 20)).extracting(SimilarProductDTO::getProductId).contains(2L);
+		assertThat(score(full, 1L, 2L)).isCloseTo(45 / Math.sqrt(66 * 51), within(1e-9));
+
+		for (long product = 1; product <= 5; product++) {
+			List<SimilarProductDTO> expected = full.getSimilar(product, 20);
+			List<SimilarProductDTO> actual = incremental.getSimilar(product, 20);
+			assertThat(actual).as("product %d", product)
+					.extracting(SimilarProductDTO::getProductId)
+					.containsExactlyElementsOf(expected.stream().map(SimilarProductDTO::getProductId).toList());
+			for (int i = 0; i < expected.size(); i++) {
+				assertThat(actual.get(i).getSimilarity()).isCloseTo(expected.get(i).getSimilarity(), within(1e-9));
+			}
+		}
+	}
+
+	private static double score(ProductSimilarityService service, long product, long other) {
+		return service.getSimilar(product, 20).stream()
+				.filter(similar -> similar.getProductId() == other)
+				.findFirst().orElseThrow().getSimilarity();
+	}
+
+	private ProductSimilarityService service() {
+		ProductSimilarityService service = new ProductSimilarityService();
+		ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+		ReflectionTestUtils.setField(service, "namedJdbcTemplate", namedJdbcTemplate);
+		ReflectionTestUtils.setField(service, "neighbors", 20);
+		ReflectionTestUtils.setField(service, "minCoRaters", 2);
+		ReflectionTestUtils.setField(service, "maxReviewerReviews", MAX_REVIEWER_REVIEWS);
+		ReflectionTestUtils.setField(service, "maxIncrementalProducts", 1000);
+		services.add(service);
+		return service;
+	}
+
+	private void review(Integer reviewer, long product, int rating) {
+		Review review = new Review((long) reviews.size() + 1, "Review " + (reviews.size() + 1), rating, product,
+				reviewer == null ? null : reviewer.longValue(), null, null);
+		entityManager.persist(review);
+		reviews.add(review);
+	}
+}
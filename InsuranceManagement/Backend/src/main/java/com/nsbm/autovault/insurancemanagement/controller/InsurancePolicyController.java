@@ -4,14 +4,19 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -20,13 +25,20 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicyCursorPageDto;
 import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicyDto;
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+import com.nsbm.autovault.insurancemanagement.dto.PolicySearchCriteria;
+import com.nsbm.autovault.insurancemanagement.dto.VehicleImageDto;
+import com.nsbm.autovault.insurancemanagement.service.CountMode;
 import com.nsbm.autovault.insurancemanagement.service.InsurancePolicyService;
 import com.nsbm.autovault.insurancemanagement.util.Constants;
 
 /**
  * Controller for handling insurance policy related API requests
  * Provides endpoints for CRUD operations and other insurance policy operations
+ * The list endpoints page by pageNo, or by cursor when a cursor parameter is given (empty for the first page):
+ * then pages are read after the nextCursor of the previous one and counted only as the count parameter says
  */
 @RestController
 @RequestMapping(Constants.INSURANCE_URL)
@@ -49,7 +61,7 @@ public class InsurancePolicyController {
     }
     
     /**
-     * Get a policy by id
+     * Get a policy by id, including the URL of its vehicle image
      */
     @GetMapping("/{id}")
     public ResponseEntity<InsurancePolicyDto> getPolicyById(@PathVariable Long id) {
@@ -57,6 +69,31 @@ public class InsurancePolicyController {
         return ResponseEntity.ok(policy);
     }
     
+    /**
+     * Stream the vehicle image of a policy
+     * Range requests are answered with 206 Partial Content and If-None-Match with 304 Not Modified (the ETag is the
+     * content hash). The URL returned with the policy carries the hash as version, so with it the image can be cached for good
+     */
+    @GetMapping(Constants.VEHICLE_IMAGE_PATH)
+    public ResponseEntity<Resource> getVehicleImage(@PathVariable Long id,
+            @RequestParam(name = "v", required = false) String version) {
+        VehicleImageDto image = policyService.getVehicleImage(id);
+        if (image == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // Only the exact version the URL was built with, a shorter prefix would pin any image starting with it
+        CacheControl cacheControl = version != null && version.length() == Constants.VEHICLE_IMAGE_VERSION_LENGTH
+                && image.getHash().startsWith(version)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable()
+                : CacheControl.noCache().cachePrivate();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(image.getContentType()))
+                .eTag(image.getHash())
+                .cacheControl(cacheControl)
+                .header("X-Content-Type-Options", "nosniff")
+                .body(image.getContent());
+    }
+    
     /**
      * Get a policy by policy number
      */
@@ -74,9 +111,15 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getAllPolicies(pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder().build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getAllPolicies(pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
@@ -89,9 +132,15 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getPoliciesByVehicleId(vehicleId, pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder().vehicleId(vehicleId).build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getPoliciesByVehicleId(vehicleId, pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
@@ -104,9 +153,15 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getPoliciesByProvider(provider, pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder().providerContains(provider).build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getPoliciesByProvider(provider, pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
@@ -120,9 +175,15 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getPoliciesByExpiryDateRange(startDate, endDate, pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder().endDateFrom(startDate).endDateTo(endDate).build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getPoliciesByExpiryDateRange(startDate, endDate, pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
@@ -134,9 +195,16 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getActivePolicies(pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder()
+                    .status(Constants.POLICY_STATUS_ACTIVE).endDateFrom(LocalDate.now().plusDays(1)).build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getActivePolicies(pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
@@ -148,9 +216,15 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getExpiredPolicies(pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder().endDateTo(LocalDate.now().minusDays(1)).build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getExpiredPolicies(pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
@@ -163,9 +237,15 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getPoliciesByVehicleDetails(searchTerm, pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder().vehicleSearch(searchTerm).build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getPoliciesByVehicleDetails(searchTerm, pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
@@ -179,12 +259,35 @@ public class InsurancePolicyController {
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_NUMBER) int pageNo,
             @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
-            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir) {
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
         
-        Page<InsurancePolicyDto> policies = policyService.getPoliciesByPremiumRange(minAmount, maxAmount, pageNo, pageSize, sortBy, sortDir);
+        if (cursor != null) {
+            return createCursorResponse(policyService.findPolicies(
+                    PolicySearchCriteria.builder().premiumMin(minAmount).premiumMax(maxAmount).build(), cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+        }
+        Page<InsurancePolicySummaryDto> policies = policyService.getPoliciesByPremiumRange(minAmount, maxAmount, pageNo, pageSize, sortBy, sortDir);
         return createPageResponse(policies);
     }
     
+    /**
+     * Get policies matching any combination of filters in cursor mode, in one query
+     * Filters: vehicleId, provider (exact name), providerContains, status, endDateFrom and endDateTo (expiry range),
+     * premiumMin and premiumMax, vehicleSearch (make, model or registration). Without filters all policies are listed
+     */
+    @GetMapping("/query")
+    public ResponseEntity<Map<String, Object>> queryPolicies(
+            @ModelAttribute PolicySearchCriteria criteria,
+            @RequestParam(defaultValue = Constants.DEFAULT_PAGE_SIZE) int pageSize,
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_BY) String sortBy,
+            @RequestParam(defaultValue = Constants.DEFAULT_SORT_DIRECTION) String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = Constants.DEFAULT_COUNT_MODE) String count) {
+        
+        return createCursorResponse(policyService.findPolicies(criteria, cursor, pageSize, sortBy, sortDir, CountMode.of(count)));
+    }
+    
     /**
      * Update an existing policy
      */
@@ -210,9 +313,24 @@ public class InsurancePolicyController {
     }
     
     /**
-     * Create a paginated response from a page of policies
+     * Create a response from a page of policy summaries in cursor mode
+     */
+    private ResponseEntity<Map<String, Object>> createCursorResponse(InsurancePolicyCursorPageDto page) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("policies", page.getPolicies());
+        response.put("nextCursor", page.getNextCursor());
+        response.put("hasNext", page.getNextCursor() != null);
+        if (page.getTotalItems() != null) {
+            response.put("totalItems", page.getTotalItems());
+        }
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Create a paginated response from a page of policy summaries
      */
-    private ResponseEntity<Map<String, Object>> createPageResponse(Page<InsurancePolicyDto> page) {
+    private ResponseEntity<Map<String, Object>> createPageResponse(Page<InsurancePolicySummaryDto> page) {
         Map<String, Object> response = new HashMap<>();
         response.put("policies", page.getContent());
         response.put("currentPage", page.getNumber());
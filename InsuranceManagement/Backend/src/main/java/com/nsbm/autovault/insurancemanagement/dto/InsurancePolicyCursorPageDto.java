@@ -0,0 +1,23 @@
+package com.nsbm.autovault.insurancemanagement.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One page of policies in cursor mode
+ * nextCursor is null on the last page, totalItems is null unless a count was asked for
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InsurancePolicyCursorPageDto {
+
+    private List<InsurancePolicySummaryDto> policies;
+    private String nextCursor;
+    private Long totalItems;
+}
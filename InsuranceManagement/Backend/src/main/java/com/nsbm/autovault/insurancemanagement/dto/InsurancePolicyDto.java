@@ -35,5 +35,6 @@ public class InsurancePolicyDto {
     private BigDecimal collisionCoverageAmount;
     private String status;
     private String notes;
-    private String vehicleImage; // Base64 encoded image
+    private String vehicleImage; // Base64 encoded image sent by the client, returned only until it is moved to the image store
+    private String vehicleImageUrl; // Where the stored image can be downloaded, relative to the server
 } 
\ No newline at end of file
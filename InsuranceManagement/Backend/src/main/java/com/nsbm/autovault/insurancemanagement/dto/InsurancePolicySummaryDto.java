@@ -0,0 +1,40 @@
+package com.nsbm.autovault.insurancemanagement.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Insurance policy as shown in policy lists, without the vehicle image.
+ * Built directly by the list queries of InsurancePolicyRepository, so vehicle_image is never selected
+ * and the size of a page doesn't depend on the size of the images.
+ * The image is only served by GET /api/insurance/{id}/vehicle-image.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InsurancePolicySummaryDto {
+
+    private Long id;
+    private String policyNumber;
+    private String provider;
+    private Long vehicleId;
+    private String vehicleRegistration;
+    private String vehicleMake;
+    private String vehicleModel;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private BigDecimal premiumAmount;
+    private String coverageType;
+    private BigDecimal deductibleAmount;
+    private BigDecimal liabilityCoverageAmount;
+    private BigDecimal comprehensiveCoverageAmount;
+    private BigDecimal collisionCoverageAmount;
+    private String status;
+    private String notes;
+}
@@ -0,0 +1,35 @@
+package com.nsbm.autovault.insurancemanagement.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Filters of a policy list, as applied by InsurancePolicyRepository.findSummaries
+ * Bound from the request parameters of GET /api/insurance/query
+ * Every filter that is set must match, an empty criteria matches all policies
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PolicySearchCriteria {
+
+    private Long vehicleId;
+    private String provider; // Provider name
+    private String providerContains; // Part of the provider name, ignoring case (can't use an index)
+    private String status;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDateFrom; // Inclusive
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDateTo; // Inclusive
+    private BigDecimal premiumMin; // Inclusive
+    private BigDecimal premiumMax; // Inclusive
+    private String vehicleSearch; // Part of the make, model or registration of the vehicle, ignoring case
+}
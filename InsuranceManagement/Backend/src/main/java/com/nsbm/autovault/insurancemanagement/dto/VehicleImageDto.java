@@ -0,0 +1,22 @@
+package com.nsbm.autovault.insurancemanagement.dto;
+
+import org.springframework.core.io.Resource;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stored vehicle image of a policy, as streamed by GET /api/insurance/{id}/vehicle-image
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleImageDto {
+
+    private String hash;
+    private String contentType;
+    private Resource content;
+}
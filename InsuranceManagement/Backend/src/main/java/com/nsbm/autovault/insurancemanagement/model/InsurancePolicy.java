@@ -10,6 +10,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -24,7 +25,15 @@ import lombok.NoArgsConstructor;
  * Contains details like policy number, provider, coverage details, start and end date, premium amount, etc.
  */
 @Entity
-@Table(name = "insurance_policies")
+@Table(name = "insurance_policies", indexes = {
+        // Sort keys of the policy lists in cursor mode followed by id, the tie breaker, see PolicySortKey.
+        // Provider, premium amount and status with end date are also the filters of GET /api/insurance/query
+        @Index(name = "idx_policy_provider", columnList = "provider, id"),
+        @Index(name = "idx_policy_status_end_date", columnList = "status, end_date, id"),
+        @Index(name = "idx_policy_start_date", columnList = "start_date, id"),
+        @Index(name = "idx_policy_end_date", columnList = "end_date, id"),
+        @Index(name = "idx_policy_premium_amount", columnList = "premium_amount, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -41,7 +50,8 @@ public class InsurancePolicy {
     @Column(name = "provider", nullable = false)
     private String provider;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Loaded by the queries that need it: joined by the list queries, fetched by the entity graphs of the finders
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "vehicle_id", nullable = false)
     private Vehicle vehicle;
     
@@ -75,7 +85,14 @@ public class InsurancePolicy {
     @Column(name = "notes")
     private String notes;
     
-    // Vehicle Image at time of policy creation
+    // Vehicle Image at time of policy creation, kept in the VehicleImageStore under this hash
+    @Column(name = "vehicle_image_hash", length = 64)
+    private String vehicleImageHash;
+    
+    @Column(name = "vehicle_image_type", length = 50)
+    private String vehicleImageType;
+    
+    // Base64 image of policies created before the image store, moved there by VehicleImageMigration
     @Lob
     @Column(name = "vehicle_image", columnDefinition = "LONGTEXT")
     private String vehicleImage;
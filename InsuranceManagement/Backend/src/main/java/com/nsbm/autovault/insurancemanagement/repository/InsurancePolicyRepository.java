@@ -7,11 +7,15 @@ import java.util.Optional;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
 import com.nsbm.autovault.insurancemanagement.model.InsurancePolicy;
 import com.nsbm.autovault.insurancemanagement.model.Vehicle;
 
@@ -20,65 +24,119 @@ import com.nsbm.autovault.insurancemanagement.model.Vehicle;
  * Provides methods to interact with the insurance_policies table in the database
  */
 @Repository
-public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy, Long> {
+public interface InsurancePolicyRepository extends JpaRepository<InsurancePolicy, Long>, InsurancePolicyRepositoryCustom {
     
     /**
-     * Find policy by policy number
+     * Find policy by id, with its vehicle in the same statement
      */
+    @Override
+    @EntityGraph(attributePaths = "vehicle")
+    Optional<InsurancePolicy> findById(Long id);
+    
+    /**
+     * Find policy by policy number, with its vehicle in the same statement
+     */
+    @EntityGraph(attributePaths = "vehicle")
     Optional<InsurancePolicy> findByPolicyNumber(String policyNumber);
     
     /**
-     * Find all policies for a specific vehicle
+     * Find all policies for a specific vehicle, with the vehicle in the same statement
      */
+    @EntityGraph(attributePaths = "vehicle")
     List<InsurancePolicy> findByVehicle(Vehicle vehicle);
     
     /**
-     * Find all policies for a specific vehicle with pagination
+     * Select clause of the policy list queries: the columns of InsurancePolicySummaryDto, joined with the vehicle
+     * in the same statement, without vehicle_image
+     * Every policy has a vehicle, the outer join only makes the database read policies first, in the order of the page,
+     * instead of starting from the few vehicles and sorting all their policies
      */
-    Page<InsurancePolicy> findByVehicle(Vehicle vehicle, Pageable pageable);
+    String SUMMARY_SELECT = "SELECT new com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto(" +
+            "p.id, p.policyNumber, p.provider, v.id, v.registrationNumber, v.make, v.model, p.startDate, p.endDate, " +
+            "p.premiumAmount, p.coverageType, p.deductibleAmount, p.liabilityCoverageAmount, " +
+            "p.comprehensiveCoverageAmount, p.collisionCoverageAmount, p.status, p.notes) " +
+            "FROM InsurancePolicy p LEFT JOIN p.vehicle v";
     
     /**
-     * Find all policies by provider
+     * Find all policies with pagination
      */
-    Page<InsurancePolicy> findByProviderContainingIgnoreCase(String provider, Pageable pageable);
+    @Query(SUMMARY_SELECT)
+    Page<InsurancePolicySummaryDto> findAllSummaries(Pageable pageable);
     
     /**
-     * Find all policies with end date between the given dates
+     * Find all policies for a specific vehicle with pagination
      */
-    Page<InsurancePolicy> findByEndDateBetween(LocalDate startDate, LocalDate endDate, Pageable pageable);
+    @Query(SUMMARY_SELECT + " WHERE v.id = :vehicleId")
+    Page<InsurancePolicySummaryDto> findSummariesByVehicleId(@Param("vehicleId") Long vehicleId, Pageable pageable);
     
     /**
-     * Find all policies with status
+     * Find all policies by provider
      */
-    Page<InsurancePolicy> findByStatus(String status, Pageable pageable);
+    @Query(SUMMARY_SELECT + " WHERE LOWER(p.provider) LIKE LOWER(CONCAT('%', :provider, '%'))")
+    Page<InsurancePolicySummaryDto> findSummariesByProvider(@Param("provider") String provider, Pageable pageable);
+    
+    /**
+     * Find all policies with end date between the given dates
+     */
+    @Query(SUMMARY_SELECT + " WHERE p.endDate BETWEEN :startDate AND :endDate")
+    Page<InsurancePolicySummaryDto> findSummariesByEndDateBetween(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            Pageable pageable);
     
     /**
      * Find all active policies (end date after current date and status is active)
      */
-    Page<InsurancePolicy> findByEndDateAfterAndStatus(LocalDate currentDate, String status, Pageable pageable);
+    @Query(SUMMARY_SELECT + " WHERE p.endDate > :currentDate AND p.status = :status")
+    Page<InsurancePolicySummaryDto> findSummariesByEndDateAfterAndStatus(
+            @Param("currentDate") LocalDate currentDate,
+            @Param("status") String status,
+            Pageable pageable);
     
     /**
      * Find expired policies (end date before current date)
      */
-    Page<InsurancePolicy> findByEndDateBefore(LocalDate currentDate, Pageable pageable);
+    @Query(SUMMARY_SELECT + " WHERE p.endDate < :currentDate")
+    Page<InsurancePolicySummaryDto> findSummariesByEndDateBefore(@Param("currentDate") LocalDate currentDate, Pageable pageable);
     
     /**
-     * Custom query to find policies by vehicle details
+     * Find policies by vehicle details (make, model, registration)
      */
-    @Query("SELECT DISTINCT p FROM InsurancePolicy p JOIN p.vehicle v WHERE " +
+    @Query(SUMMARY_SELECT + " WHERE " +
            "LOWER(v.make) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(v.model) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
            "LOWER(v.registrationNumber) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<InsurancePolicy> findByVehicleDetails(
+    Page<InsurancePolicySummaryDto> findSummariesByVehicleDetails(
             @Param("searchTerm") String searchTerm,
             Pageable pageable);
     
     /**
      * Find policies by premium amount range
      */
-    @Query("SELECT p FROM InsurancePolicy p WHERE p.premiumAmount BETWEEN :minAmount AND :maxAmount")
-    Page<InsurancePolicy> findByPremiumAmountRange(
+    @Query(SUMMARY_SELECT + " WHERE p.premiumAmount BETWEEN :minAmount AND :maxAmount")
+    Page<InsurancePolicySummaryDto> findSummariesByPremiumAmountRange(
             @Param("minAmount") BigDecimal minAmount,
             @Param("maxAmount") BigDecimal maxAmount,
             Pageable pageable);
-} 
\ No newline at end of file
+    
+    /**
+     * Find the ids of policies whose base64 vehicle image hasn't been moved to the image store yet
+     */
+    @Query("SELECT p.id FROM InsurancePolicy p WHERE p.vehicleImage IS NOT NULL ORDER BY p.id")
+    List<Long> findIdsWithLegacyVehicleImage();
+    
+    /**
+     * Find the base64 vehicle image of a policy created before the image store
+     */
+    @Query("SELECT p.vehicleImage FROM InsurancePolicy p WHERE p.id = :id")
+    String findLegacyVehicleImage(@Param("id") Long id);
+    
+    /**
+     * Replace the base64 vehicle image of a policy by a reference to the image store
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE InsurancePolicy p SET p.vehicleImageHash = :hash, p.vehicleImageType = :type, p.vehicleImage = NULL " +
+           "WHERE p.id = :id")
+    int moveVehicleImageToStore(@Param("id") Long id, @Param("hash") String hash, @Param("type") String type);
+}
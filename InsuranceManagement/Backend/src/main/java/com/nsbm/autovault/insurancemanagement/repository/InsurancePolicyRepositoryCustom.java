@@ -0,0 +1,24 @@
+package com.nsbm.autovault.insurancemanagement.repository;
+
+import java.util.List;
+
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+import com.nsbm.autovault.insurancemanagement.dto.PolicySearchCriteria;
+
+/**
+ * Policy list queries built from search criteria, implemented with the JPA Criteria API
+ */
+public interface InsurancePolicyRepositoryCustom {
+
+    /**
+     * Find up to limit policy summaries matching the criteria, sorted by the sort key and id,
+     * starting after the cursor (or from the start without one)
+     */
+    List<InsurancePolicySummaryDto> findSummaries(PolicySearchCriteria criteria, PolicySortKey sortKey,
+                                                  boolean ascending, PolicyCursor after, int limit);
+
+    /**
+     * Count the policies matching the criteria
+     */
+    long countSummaries(PolicySearchCriteria criteria);
+}
@@ -0,0 +1,146 @@
+package com.nsbm.autovault.insurancemanagement.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+import com.nsbm.autovault.insurancemanagement.dto.PolicySearchCriteria;
+import com.nsbm.autovault.insurancemanagement.model.InsurancePolicy;
+import com.nsbm.autovault.insurancemanagement.model.Vehicle;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+/**
+ * Implementation of InsurancePolicyRepositoryCustom
+ * Pages are read by seeking past the cursor on (sort key, id) instead of skipping rows with OFFSET,
+ * so reading the 10000th page costs the same as reading the first one.
+ * The filters are plain comparisons on the policy columns so that they can use the indexes of InsurancePolicy:
+ * status with an end date range uses (status, end_date), provider (provider) and premium range (premium_amount)
+ */
+public class InsurancePolicyRepositoryImpl implements InsurancePolicyRepositoryCustom {
+
+    private final EntityManager entityManager;
+
+    public InsurancePolicyRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * Select the summaries with the vehicle outer joined, like InsurancePolicyRepository.SUMMARY_SELECT
+     */
+    @Override
+    public List<InsurancePolicySummaryDto> findSummaries(PolicySearchCriteria criteria, PolicySortKey sortKey,
+                                                         boolean ascending, PolicyCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<InsurancePolicySummaryDto> query = cb.createQuery(InsurancePolicySummaryDto.class);
+        Root<InsurancePolicy> p = query.from(InsurancePolicy.class);
+        Join<InsurancePolicy, Vehicle> v = p.join("vehicle", JoinType.LEFT);
+        query.select(cb.construct(InsurancePolicySummaryDto.class,
+                p.get("id"), p.get("policyNumber"), p.get("provider"),
+                v.get("id"), v.get("registrationNumber"), v.get("make"), v.get("model"),
+                p.get("startDate"), p.get("endDate"), p.get("premiumAmount"), p.get("coverageType"),
+                p.get("deductibleAmount"), p.get("liabilityCoverageAmount"), p.get("comprehensiveCoverageAmount"),
+                p.get("collisionCoverageAmount"), p.get("status"), p.get("notes")));
+
+        List<Predicate> predicates = predicates(cb, p, () -> v, criteria);
+        if (after != null) {
+            predicates.add(seek(cb, p, after));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+
+        Path<Long> id = p.get("id");
+        if (sortKey == PolicySortKey.ID) {
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            Path<?> key = p.get(sortKey.getAttribute());
+            query.orderBy(ascending ? cb.asc(key) : cb.desc(key), ascending ? cb.asc(id) : cb.desc(id));
+        }
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * Count with the vehicle joined only when a vehicle filter needs it
+     */
+    @Override
+    public long countSummaries(PolicySearchCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<InsurancePolicy> p = query.from(InsurancePolicy.class);
+        query.select(cb.count(p));
+        query.where(predicates(cb, p, () -> p.join("vehicle"), criteria).toArray(Predicate[]::new));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Predicates of the criteria, the vehicle join is only asked for by the vehicle search
+     */
+    private List<Predicate> predicates(CriteriaBuilder cb, Root<InsurancePolicy> p,
+                                       Supplier<Join<InsurancePolicy, Vehicle>> vehicle, PolicySearchCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria.getVehicleId() != null) {
+            predicates.add(cb.equal(p.get("vehicle").get("id"), criteria.getVehicleId()));
+        }
+        if (criteria.getProvider() != null) {
+            predicates.add(cb.equal(p.get("provider"), criteria.getProvider()));
+        }
+        if (criteria.getProviderContains() != null) {
+            predicates.add(cb.like(cb.lower(p.get("provider")), contains(criteria.getProviderContains())));
+        }
+        if (criteria.getStatus() != null) {
+            predicates.add(cb.equal(p.get("status"), criteria.getStatus()));
+        }
+        if (criteria.getEndDateFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.get("endDate"), criteria.getEndDateFrom()));
+        }
+        if (criteria.getEndDateTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(p.get("endDate"), criteria.getEndDateTo()));
+        }
+        if (criteria.getPremiumMin() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.get("premiumAmount"), criteria.getPremiumMin()));
+        }
+        if (criteria.getPremiumMax() != null) {
+            predicates.add(cb.lessThanOrEqualTo(p.get("premiumAmount"), criteria.getPremiumMax()));
+        }
+        if (criteria.getVehicleSearch() != null) {
+            Join<InsurancePolicy, Vehicle> v = vehicle.get();
+            String pattern = contains(criteria.getVehicleSearch());
+            predicates.add(cb.or(
+                    cb.like(cb.lower(v.get("make")), pattern),
+                    cb.like(cb.lower(v.get("model")), pattern),
+                    cb.like(cb.lower(v.get("registrationNumber")), pattern)));
+        }
+        return predicates;
+    }
+
+    /**
+     * Policies after the cursor: key > value, or key = value and id > cursor id (reversed when descending)
+     * The redundant key >= value lets the database range scan the index of the sort key
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Predicate seek(CriteriaBuilder cb, Root<InsurancePolicy> p, PolicyCursor after) {
+        Path<Long> id = p.get("id");
+        if (after.sortKey() == PolicySortKey.ID) {
+            return after.ascending() ? cb.greaterThan(id, after.id()) : cb.lessThan(id, after.id());
+        }
+        Path key = p.get(after.sortKey().getAttribute());
+        Comparable value = after.value();
+        if (after.ascending()) {
+            return cb.and(cb.greaterThanOrEqualTo(key, value),
+                    cb.or(cb.greaterThan(key, value), cb.greaterThan(id, after.id())));
+        }
+        return cb.and(cb.lessThanOrEqualTo(key, value),
+                cb.or(cb.lessThan(key, value), cb.lessThan(id, after.id())));
+    }
+
+    private static String contains(String text) {
+        return "%" + text.toLowerCase() + "%";
+    }
+}
@@ -0,0 +1,40 @@
+package com.nsbm.autovault.insurancemanagement.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+
+/**
+ * Position in a sorted policy list: the sort key value and id of the last policy of the previous page
+ * Sent to clients as an opaque URL safe string, which is only valid for the same sort key and direction
+ */
+public record PolicyCursor(PolicySortKey sortKey, boolean ascending, Comparable<?> value, long id) {
+
+    /**
+     * Cursor after the given policy
+     */
+    public static PolicyCursor after(InsurancePolicySummaryDto policy, PolicySortKey sortKey, boolean ascending) {
+        return new PolicyCursor(sortKey, ascending, sortKey.valueOf(policy), policy.getId());
+    }
+
+    /**
+     * Read a cursor written by encode, checking it was made for the given sort
+     */
+    public static PolicyCursor decode(String cursor, PolicySortKey sortKey, boolean ascending) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", 4);
+            if (parts.length != 4 || !parts[0].equals(sortKey.name()) || Boolean.parseBoolean(parts[1]) != ascending) {
+                throw new RuntimeException("Cursor doesn't match the sort order: " + cursor);
+            }
+            return new PolicyCursor(sortKey, ascending, sortKey.parse(parts[3]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    public String encode() {
+        String text = sortKey.name() + "," + ascending + "," + id + "," + sortKey.format(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
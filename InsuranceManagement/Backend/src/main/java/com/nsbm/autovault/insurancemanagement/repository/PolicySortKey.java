@@ -0,0 +1,69 @@
+package com.nsbm.autovault.insurancemanagement.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.Function;
+
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+
+/**
+ * Columns a policy list can be sorted by in cursor mode, each backed by an index
+ * Ties are broken by id, so (sort key, id) identifies the position of a policy in the list
+ */
+public enum PolicySortKey {
+
+    ID("id", Long::valueOf, InsurancePolicySummaryDto::getId),
+    POLICY_NUMBER("policyNumber", value -> value, InsurancePolicySummaryDto::getPolicyNumber),
+    PROVIDER("provider", value -> value, InsurancePolicySummaryDto::getProvider),
+    START_DATE("startDate", LocalDate::parse, InsurancePolicySummaryDto::getStartDate),
+    END_DATE("endDate", LocalDate::parse, InsurancePolicySummaryDto::getEndDate),
+    PREMIUM_AMOUNT("premiumAmount", BigDecimal::new, InsurancePolicySummaryDto::getPremiumAmount);
+
+    private final String attribute;
+    private final Function<String, Comparable<?>> parser;
+    private final Function<InsurancePolicySummaryDto, Comparable<?>> getter;
+
+    PolicySortKey(String attribute, Function<String, Comparable<?>> parser,
+                  Function<InsurancePolicySummaryDto, Comparable<?>> getter) {
+        this.attribute = attribute;
+        this.parser = parser;
+        this.getter = getter;
+    }
+
+    /**
+     * Get the sort key of an InsurancePolicy attribute, as passed in sortBy
+     */
+    public static PolicySortKey of(String attribute) {
+        for (PolicySortKey key : values()) {
+            if (key.attribute.equals(attribute)) {
+                return key;
+            }
+        }
+        throw new RuntimeException("Policies can't be sorted by: " + attribute);
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Value of this key in a policy
+     */
+    public Comparable<?> valueOf(InsurancePolicySummaryDto policy) {
+        return getter.apply(policy);
+    }
+
+    /**
+     * Parse a value of this key written by format
+     */
+    public Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+
+    /**
+     * Write a value of this key as text
+     */
+    public String format(Comparable<?> value) {
+        return value instanceof BigDecimal amount ? amount.toPlainString() : value.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.nsbm.autovault.insurancemanagement.service;
+
+/**
+ * How the total number of policies is returned with a page in cursor mode
+ */
+public enum CountMode {
+
+    /**
+     * Counted for every page
+     */
+    EXACT,
+
+    /**
+     * Counted once and reused for the same filters until it expires or a policy changes
+     */
+    CACHED,
+
+    /**
+     * Not counted, the page only tells whether there is a next one
+     */
+    NONE;
+
+    /**
+     * Get the count mode of a count parameter, ignoring case
+     */
+    public static CountMode of(String mode) {
+        for (CountMode countMode : values()) {
+            if (countMode.name().equalsIgnoreCase(mode)) {
+                return countMode;
+            }
+        }
+        throw new RuntimeException("Count must be one of exact, cached or none: " + mode);
+    }
+}
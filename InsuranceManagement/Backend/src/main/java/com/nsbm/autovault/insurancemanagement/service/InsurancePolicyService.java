@@ -5,11 +5,16 @@ import java.time.LocalDate;
 
 import org.springframework.data.domain.Page;
 
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicyCursorPageDto;
 import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicyDto;
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+import com.nsbm.autovault.insurancemanagement.dto.PolicySearchCriteria;
+import com.nsbm.autovault.insurancemanagement.dto.VehicleImageDto;
 
 /**
  * Service interface for Insurance Policy operations
  * Defines methods for CRUD operations and other business logic related to insurance policies
+ * The list methods return summaries without the vehicle image, single policies include the URL of their image
  */
 public interface InsurancePolicyService {
     
@@ -23,6 +28,11 @@ public interface InsurancePolicyService {
      */
     InsurancePolicyDto getPolicyById(Long id);
     
+    /**
+     * Get the stored vehicle image of a policy, or null if it has none
+     */
+    VehicleImageDto getVehicleImage(Long id);
+    
     /**
      * Get a policy by policy number
      */
@@ -31,42 +41,48 @@ public interface InsurancePolicyService {
     /**
      * Get all policies with pagination
      */
-    Page<InsurancePolicyDto> getAllPolicies(int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getAllPolicies(int pageNo, int pageSize, String sortBy, String sortDir);
     
     /**
      * Get policies by vehicle id with pagination
      */
-    Page<InsurancePolicyDto> getPoliciesByVehicleId(Long vehicleId, int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getPoliciesByVehicleId(Long vehicleId, int pageNo, int pageSize, String sortBy, String sortDir);
     
     /**
      * Get policies by provider with pagination
      */
-    Page<InsurancePolicyDto> getPoliciesByProvider(String provider, int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getPoliciesByProvider(String provider, int pageNo, int pageSize, String sortBy, String sortDir);
     
     /**
      * Get policies by expiry date range with pagination
      */
-    Page<InsurancePolicyDto> getPoliciesByExpiryDateRange(LocalDate startDate, LocalDate endDate, int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getPoliciesByExpiryDateRange(LocalDate startDate, LocalDate endDate, int pageNo, int pageSize, String sortBy, String sortDir);
     
     /**
      * Get active policies with pagination
      */
-    Page<InsurancePolicyDto> getActivePolicies(int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getActivePolicies(int pageNo, int pageSize, String sortBy, String sortDir);
     
     /**
      * Get expired policies with pagination
      */
-    Page<InsurancePolicyDto> getExpiredPolicies(int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getExpiredPolicies(int pageNo, int pageSize, String sortBy, String sortDir);
     
     /**
      * Get policies by vehicle details (make, model, registration) with pagination
      */
-    Page<InsurancePolicyDto> getPoliciesByVehicleDetails(String searchTerm, int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getPoliciesByVehicleDetails(String searchTerm, int pageNo, int pageSize, String sortBy, String sortDir);
     
     /**
      * Get policies by premium amount range with pagination
      */
-    Page<InsurancePolicyDto> getPoliciesByPremiumRange(BigDecimal minAmount, BigDecimal maxAmount, int pageNo, int pageSize, String sortBy, String sortDir);
+    Page<InsurancePolicySummaryDto> getPoliciesByPremiumRange(BigDecimal minAmount, BigDecimal maxAmount, int pageNo, int pageSize, String sortBy, String sortDir);
+    
+    /**
+     * Get a page of the policies matching the criteria in cursor mode, sorted by sortBy and then id
+     * Pass no cursor for the first page and the nextCursor of a page for the one after it
+     */
+    InsurancePolicyCursorPageDto findPolicies(PolicySearchCriteria criteria, String cursor, int pageSize, String sortBy, String sortDir, CountMode countMode);
     
     /**
      * Update an existing policy
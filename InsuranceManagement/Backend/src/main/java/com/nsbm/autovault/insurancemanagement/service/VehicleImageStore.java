@@ -0,0 +1,27 @@
+package com.nsbm.autovault.insurancemanagement.service;
+
+import org.springframework.core.io.Resource;
+
+/**
+ * Binary store for vehicle images, keyed by the SHA-256 hash of their content
+ * Policies keep only the hash, so the same image uploaded for several policies is stored once
+ */
+public interface VehicleImageStore {
+
+    /**
+     * Image as stored: content hash, detected content type and size in bytes
+     */
+    record StoredImage(String hash, String contentType, long size) {
+    }
+
+    /**
+     * Decode a base64 image, either plain or as a data URL ("data:image/png;base64,..."), and store it
+     * The content type is detected from the image itself, only JPEG, PNG, GIF and WebP images are accepted
+     */
+    StoredImage store(String encodedImage);
+
+    /**
+     * Get a stored image by its hash, or null if there is none
+     */
+    Resource load(String hash);
+}
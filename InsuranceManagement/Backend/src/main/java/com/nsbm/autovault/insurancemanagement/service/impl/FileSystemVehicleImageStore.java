@@ -0,0 +1,143 @@
+package com.nsbm.autovault.insurancemanagement.service.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import com.nsbm.autovault.insurancemanagement.service.VehicleImageStore;
+import com.nsbm.autovault.insurancemanagement.util.Constants;
+
+/**
+ * VehicleImageStore keeping each image as a file named by its hash, under insurance.images.dir
+ * Files are spread over 256 sub directories by the first two characters of the hash,
+ * and written to a temporary file first so that a half written image is never served
+ */
+@Service
+public class FileSystemVehicleImageStore implements VehicleImageStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path directory;
+    private final long maxBytes;
+
+    public FileSystemVehicleImageStore(@Value("${insurance.images.dir:vehicle-images}") String directory,
+                                       @Value("${insurance.images.max-bytes:5242880}") long maxBytes) {
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Decode, check and store an image, unless an image with the same content is stored already
+     */
+    @Override
+    public StoredImage store(String encodedImage) {
+        String base64 = encodedImage.strip();
+        if (base64.startsWith("data:")) {
+            int comma = base64.indexOf(',');
+            if (comma < 0 || !base64.substring(0, comma).endsWith(";base64")) {
+                throw new RuntimeException(Constants.ERROR_INVALID_VEHICLE_IMAGE);
+            }
+            base64 = base64.substring(comma + 1);
+        }
+        // Reject oversized images before decoding them
+        if (base64.length() / 4 * 3L > maxBytes + 2) {
+            throw new RuntimeException(Constants.ERROR_VEHICLE_IMAGE_TOO_LARGE + maxBytes + " bytes");
+        }
+        byte[] image;
+        try {
+            image = Base64.getDecoder().decode(base64);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(Constants.ERROR_INVALID_VEHICLE_IMAGE, e);
+        }
+        String contentType = detectContentType(image);
+        if (contentType == null) {
+            throw new RuntimeException(Constants.ERROR_INVALID_VEHICLE_IMAGE);
+        }
+
+        String hash = sha256(image);
+        Path file = pathOf(hash);
+        try {
+            if (!Files.exists(file)) {
+                Files.createDirectories(file.getParent());
+                Path temp = Files.createTempFile(file.getParent(), hash, ".tmp");
+                try {
+                    Files.write(temp, image);
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store vehicle image " + hash, e);
+        }
+        return new StoredImage(hash, contentType, image.length);
+    }
+
+    /**
+     * Get the file of an image, or null if it doesn't exist
+     */
+    @Override
+    public Resource load(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            return null;
+        }
+        Path file = pathOf(hash);
+        return Files.isRegularFile(file) ? new FileSystemResource(file) : null;
+    }
+
+    private Path pathOf(String hash) {
+        return directory.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    /**
+     * Content type of a JPEG, PNG, GIF or WebP image from its first bytes, null for anything else
+     */
+    private static String detectContentType(byte[] image) {
+        if (startsWith(image, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(image, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(image, 0, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(image, 0, 'R', 'I', 'F', 'F') && startsWith(image, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] data, int offset, int... prefix) {
+        if (data.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((data[offset + i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -3,8 +3,13 @@ package com.nsbm.autovault.insurancemanagement.service.impl;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -12,12 +17,20 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicyCursorPageDto;
 import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicyDto;
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+import com.nsbm.autovault.insurancemanagement.dto.PolicySearchCriteria;
+import com.nsbm.autovault.insurancemanagement.dto.VehicleImageDto;
 import com.nsbm.autovault.insurancemanagement.model.InsurancePolicy;
 import com.nsbm.autovault.insurancemanagement.model.Vehicle;
 import com.nsbm.autovault.insurancemanagement.repository.InsurancePolicyRepository;
+import com.nsbm.autovault.insurancemanagement.repository.PolicyCursor;
+import com.nsbm.autovault.insurancemanagement.repository.PolicySortKey;
 import com.nsbm.autovault.insurancemanagement.repository.VehicleRepository;
+import com.nsbm.autovault.insurancemanagement.service.CountMode;
 import com.nsbm.autovault.insurancemanagement.service.InsurancePolicyService;
+import com.nsbm.autovault.insurancemanagement.service.VehicleImageStore;
 import com.nsbm.autovault.insurancemanagement.util.Constants;
 
 /**
@@ -27,13 +40,27 @@ import com.nsbm.autovault.insurancemanagement.util.Constants;
 @Service
 public class InsurancePolicyServiceImpl implements InsurancePolicyService {
 
+    private static final int MAX_CACHED_COUNTS = 1000;
+
     private final InsurancePolicyRepository policyRepository;
     private final VehicleRepository vehicleRepository;
+    private final VehicleImageStore imageStore;
+    private final long countCacheMillis;
+    
+    // Counts of CountMode.CACHED by criteria, dropped whenever a policy is created, updated or deleted
+    private final Map<PolicySearchCriteria, CachedCount> countCache = new ConcurrentHashMap<>();
+    
+    private record CachedCount(long count, long expiresAt) {
+    }
     
     @Autowired
-    public InsurancePolicyServiceImpl(InsurancePolicyRepository policyRepository, VehicleRepository vehicleRepository) {
+    public InsurancePolicyServiceImpl(InsurancePolicyRepository policyRepository, VehicleRepository vehicleRepository,
+                                      VehicleImageStore imageStore,
+                                      @Value("${insurance.count-cache.ttl-seconds:60}") long countCacheSeconds) {
         this.policyRepository = policyRepository;
         this.vehicleRepository = vehicleRepository;
+        this.imageStore = imageStore;
+        this.countCacheMillis = countCacheSeconds * 1000;
     }
 
     /**
@@ -54,11 +81,13 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
         // Create new policy
         InsurancePolicy policy = mapToEntity(policyDto, vehicle);
         policy.setStatus(Constants.POLICY_STATUS_ACTIVE);
+        setVehicleImage(policy, policyDto.getVehicleImage());
         policy.setCreatedAt(LocalDateTime.now());
         policy.setUpdatedAt(LocalDateTime.now());
         
         // Save and return
         InsurancePolicy savedPolicy = policyRepository.save(policy);
+        countCache.clear();
         return mapToDto(savedPolicy);
     }
 
@@ -72,6 +101,24 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
         return mapToDto(policy);
     }
 
+    /**
+     * Get the stored vehicle image of a policy
+     */
+    @Override
+    public VehicleImageDto getVehicleImage(Long id) {
+        InsurancePolicy policy = policyRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException(Constants.ERROR_POLICY_NOT_FOUND + id));
+        Resource content = imageStore.load(policy.getVehicleImageHash());
+        if (content == null) {
+            return null;
+        }
+        return VehicleImageDto.builder()
+                .hash(policy.getVehicleImageHash())
+                .contentType(policy.getVehicleImageType())
+                .content(content)
+                .build();
+    }
+
     /**
      * Get a policy by policy number
      */
@@ -86,52 +133,47 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
      * Get all policies with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getAllPolicies(int pageNo, int pageSize, String sortBy, String sortDir) {
+    public Page<InsurancePolicySummaryDto> getAllPolicies(int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? 
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findAll(pageable);
-        
-        return policies.map(this::mapToDto);
+        return policyRepository.findAllSummaries(pageable);
     }
 
     /**
      * Get policies by vehicle id with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getPoliciesByVehicleId(Long vehicleId, int pageNo, int pageSize, String sortBy, String sortDir) {
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new RuntimeException(Constants.ERROR_VEHICLE_NOT_FOUND + vehicleId));
+    public Page<InsurancePolicySummaryDto> getPoliciesByVehicleId(Long vehicleId, int pageNo, int pageSize, String sortBy, String sortDir) {
+        if (!vehicleRepository.existsById(vehicleId)) {
+            throw new RuntimeException(Constants.ERROR_VEHICLE_NOT_FOUND + vehicleId);
+        }
         
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? 
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findByVehicle(vehicle, pageable);
-        
-        return policies.map(this::mapToDto);
+        return policyRepository.findSummariesByVehicleId(vehicleId, pageable);
     }
 
     /**
      * Get policies by provider with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getPoliciesByProvider(String provider, int pageNo, int pageSize, String sortBy, String sortDir) {
+    public Page<InsurancePolicySummaryDto> getPoliciesByProvider(String provider, int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? 
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findByProviderContainingIgnoreCase(provider, pageable);
-        
-        return policies.map(this::mapToDto);
+        return policyRepository.findSummariesByProvider(provider, pageable);
     }
 
     /**
      * Get policies by expiry date range with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getPoliciesByExpiryDateRange(LocalDate startDate, LocalDate endDate, int pageNo, int pageSize, String sortBy, String sortDir) {
+    public Page<InsurancePolicySummaryDto> getPoliciesByExpiryDateRange(LocalDate startDate, LocalDate endDate, int pageNo, int pageSize, String sortBy, String sortDir) {
         if (endDate.isBefore(startDate)) {
             throw new RuntimeException(Constants.ERROR_INVALID_DATE_RANGE);
         }
@@ -140,59 +182,51 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findByEndDateBetween(startDate, endDate, pageable);
-        
-        return policies.map(this::mapToDto);
+        return policyRepository.findSummariesByEndDateBetween(startDate, endDate, pageable);
     }
 
     /**
      * Get active policies with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getActivePolicies(int pageNo, int pageSize, String sortBy, String sortDir) {
+    public Page<InsurancePolicySummaryDto> getActivePolicies(int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? 
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findByEndDateAfterAndStatus(
+        return policyRepository.findSummariesByEndDateAfterAndStatus(
                 LocalDate.now(), Constants.POLICY_STATUS_ACTIVE, pageable);
-        
-        return policies.map(this::mapToDto);
     }
 
     /**
      * Get expired policies with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getExpiredPolicies(int pageNo, int pageSize, String sortBy, String sortDir) {
+    public Page<InsurancePolicySummaryDto> getExpiredPolicies(int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? 
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findByEndDateBefore(LocalDate.now(), pageable);
-        
-        return policies.map(this::mapToDto);
+        return policyRepository.findSummariesByEndDateBefore(LocalDate.now(), pageable);
     }
 
     /**
      * Get policies by vehicle details with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getPoliciesByVehicleDetails(String searchTerm, int pageNo, int pageSize, String sortBy, String sortDir) {
+    public Page<InsurancePolicySummaryDto> getPoliciesByVehicleDetails(String searchTerm, int pageNo, int pageSize, String sortBy, String sortDir) {
         Sort sort = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name()) ? 
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findByVehicleDetails(searchTerm, pageable);
-        
-        return policies.map(this::mapToDto);
+        return policyRepository.findSummariesByVehicleDetails(searchTerm, pageable);
     }
 
     /**
      * Get policies by premium amount range with pagination
      */
     @Override
-    public Page<InsurancePolicyDto> getPoliciesByPremiumRange(BigDecimal minAmount, BigDecimal maxAmount, int pageNo, int pageSize, String sortBy, String sortDir) {
+    public Page<InsurancePolicySummaryDto> getPoliciesByPremiumRange(BigDecimal minAmount, BigDecimal maxAmount, int pageNo, int pageSize, String sortBy, String sortDir) {
         if (minAmount.compareTo(maxAmount) > 0) {
             throw new RuntimeException("Minimum amount cannot be greater than maximum amount");
         }
@@ -201,9 +235,70 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
                 Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         
         Pageable pageable = PageRequest.of(pageNo, pageSize, sort);
-        Page<InsurancePolicy> policies = policyRepository.findByPremiumAmountRange(minAmount, maxAmount, pageable);
+        return policyRepository.findSummariesByPremiumAmountRange(minAmount, maxAmount, pageable);
+    }
+
+    /**
+     * Get a page of policies in cursor mode
+     * One row more than the page size is read to know whether there is a next page
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public InsurancePolicyCursorPageDto findPolicies(PolicySearchCriteria criteria, String cursor, int pageSize, String sortBy, String sortDir, CountMode countMode) {
+        if (pageSize < 1 || pageSize > Constants.MAX_PAGE_SIZE) {
+            throw new RuntimeException("Page size must be between 1 and " + Constants.MAX_PAGE_SIZE);
+        }
+        if (criteria.getEndDateFrom() != null && criteria.getEndDateTo() != null
+                && criteria.getEndDateTo().isBefore(criteria.getEndDateFrom())) {
+            throw new RuntimeException(Constants.ERROR_INVALID_DATE_RANGE);
+        }
+        if (criteria.getPremiumMin() != null && criteria.getPremiumMax() != null
+                && criteria.getPremiumMin().compareTo(criteria.getPremiumMax()) > 0) {
+            throw new RuntimeException("Minimum amount cannot be greater than maximum amount");
+        }
+        if (criteria.getVehicleId() != null && !vehicleRepository.existsById(criteria.getVehicleId())) {
+            throw new RuntimeException(Constants.ERROR_VEHICLE_NOT_FOUND + criteria.getVehicleId());
+        }
+        
+        PolicySortKey sortKey = PolicySortKey.of(sortBy);
+        boolean ascending = sortDir.equalsIgnoreCase(Sort.Direction.ASC.name());
+        PolicyCursor after = cursor == null || cursor.isEmpty() ? null : PolicyCursor.decode(cursor, sortKey, ascending);
+        
+        List<InsurancePolicySummaryDto> policies = policyRepository.findSummaries(criteria, sortKey, ascending, after, pageSize + 1);
+        String nextCursor = null;
+        if (policies.size() > pageSize) {
+            policies = policies.subList(0, pageSize);
+            nextCursor = PolicyCursor.after(policies.get(pageSize - 1), sortKey, ascending).encode();
+        }
         
-        return policies.map(this::mapToDto);
+        return InsurancePolicyCursorPageDto.builder()
+                .policies(policies)
+                .nextCursor(nextCursor)
+                .totalItems(count(criteria, countMode))
+                .build();
+    }
+    
+    /**
+     * Count the policies matching the criteria as the count mode says, null for CountMode.NONE
+     */
+    private Long count(PolicySearchCriteria criteria, CountMode countMode) {
+        switch (countMode) {
+            case EXACT:
+                return policyRepository.countSummaries(criteria);
+            case CACHED:
+                long now = System.currentTimeMillis();
+                CachedCount cached = countCache.get(criteria);
+                if (cached == null || cached.expiresAt() < now) {
+                    if (countCache.size() >= MAX_CACHED_COUNTS) {
+                        countCache.clear();
+                    }
+                    cached = new CachedCount(policyRepository.countSummaries(criteria), now + countCacheMillis);
+                    countCache.put(criteria, cached);
+                }
+                return cached.count();
+            default:
+                return null;
+        }
     }
 
     /**
@@ -245,10 +340,12 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
         policy.setComprehensiveCoverageAmount(policyDto.getComprehensiveCoverageAmount());
         policy.setCollisionCoverageAmount(policyDto.getCollisionCoverageAmount());
         policy.setNotes(policyDto.getNotes());
+        setVehicleImage(policy, policyDto.getVehicleImage());
         policy.setUpdatedAt(LocalDateTime.now());
         
         // Save and return
         InsurancePolicy updatedPolicy = policyRepository.save(policy);
+        countCache.clear();
         return mapToDto(updatedPolicy);
     }
 
@@ -263,10 +360,26 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
         
         
         policyRepository.delete(policy);
+        countCache.clear();
+    }
+    
+    /**
+     * Decode and store a new vehicle image and reference it from the policy
+     * Without an image the policy keeps its current one, as the edit form doesn't send it
+     */
+    private void setVehicleImage(InsurancePolicy policy, String encodedImage) {
+        if (encodedImage == null || encodedImage.isBlank()) {
+            return;
+        }
+        VehicleImageStore.StoredImage image = imageStore.store(encodedImage);
+        policy.setVehicleImageHash(image.hash());
+        policy.setVehicleImageType(image.contentType());
+        policy.setVehicleImage(null);
     }
     
     /**
      * Map entity to DTO
+     * The image itself isn't included, only the URL to download it from, which changes with the image
      */
     private InsurancePolicyDto mapToDto(InsurancePolicy policy) {
         return InsurancePolicyDto.builder()
@@ -288,6 +401,9 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
                 .status(policy.getStatus())
                 .notes(policy.getNotes())
                 .vehicleImage(policy.getVehicleImage())
+                .vehicleImageUrl(policy.getVehicleImageHash() == null ? null
+                        : Constants.INSURANCE_URL + Constants.VEHICLE_IMAGE_PATH.replace("{id}", policy.getId().toString())
+                                + "?v=" + policy.getVehicleImageHash().substring(0, Constants.VEHICLE_IMAGE_VERSION_LENGTH))
                 .build();
     }
     
@@ -309,7 +425,6 @@ public class InsurancePolicyServiceImpl implements InsurancePolicyService {
                 .collisionCoverageAmount(dto.getCollisionCoverageAmount())
                 .status(dto.getStatus())
                 .notes(dto.getNotes())
-                .vehicleImage(dto.getVehicleImage())
                 .build();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.nsbm.autovault.insurancemanagement.service.impl;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import com.nsbm.autovault.insurancemanagement.repository.InsurancePolicyRepository;
+import com.nsbm.autovault.insurancemanagement.service.VehicleImageStore;
+
+/**
+ * Moves the base64 vehicle images of existing policies from the vehicle_image column to the VehicleImageStore
+ * Runs once the application has started, one policy at a time so that only one image is in memory.
+ * Images that can't be decoded are left in place and reported, they are still returned with their policy
+ */
+@Component
+public class VehicleImageMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(VehicleImageMigration.class);
+
+    private final InsurancePolicyRepository policyRepository;
+    private final VehicleImageStore imageStore;
+    private final boolean enabled;
+
+    @Autowired
+    public VehicleImageMigration(InsurancePolicyRepository policyRepository, VehicleImageStore imageStore,
+                                 @Value("${insurance.images.migrate-on-startup:true}") boolean enabled) {
+        this.policyRepository = policyRepository;
+        this.imageStore = imageStore;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        List<Long> ids = policyRepository.findIdsWithLegacyVehicleImage();
+        if (ids.isEmpty()) {
+            return;
+        }
+        int moved = 0;
+        for (Long id : ids) {
+            String encodedImage = policyRepository.findLegacyVehicleImage(id);
+            if (encodedImage == null) {
+                continue;
+            }
+            try {
+                VehicleImageStore.StoredImage image = imageStore.store(encodedImage);
+                moved += policyRepository.moveVehicleImageToStore(id, image.hash(), image.contentType());
+            } catch (RuntimeException e) {
+                log.warn("Could not move the vehicle image of policy {} to the image store: {}", id, e.getMessage());
+            }
+        }
+        log.info("Moved {} of {} vehicle images to the image store", moved, ids.size());
+    }
+}
@@ -10,12 +10,17 @@ public class Constants {
     public static final String HEALTH_URL = API_BASE_URL + "/health";
     public static final String VEHICLE_URL = API_BASE_URL + "/vehicles";
     public static final String INSURANCE_URL = API_BASE_URL + "/insurance";
+    public static final String VEHICLE_IMAGE_PATH = "/{id}/vehicle-image";
+    // Characters of the image hash used as the ?v= version of the image URL
+    public static final int VEHICLE_IMAGE_VERSION_LENGTH = 16;
     
     // Pagination defaults
     public static final String DEFAULT_PAGE_NUMBER = "0";
     public static final String DEFAULT_PAGE_SIZE = "10";
     public static final String DEFAULT_SORT_BY = "id";
     public static final String DEFAULT_SORT_DIRECTION = "asc";
+    public static final String DEFAULT_COUNT_MODE = "none";
+    public static final int MAX_PAGE_SIZE = 1000;
     
     // Insurance policy status
     public static final String POLICY_STATUS_ACTIVE = "ACTIVE";
@@ -30,4 +35,6 @@ public class Constants {
     public static final String ERROR_VEHICLE_NOT_FOUND = "Vehicle not found with id: ";
     public static final String ERROR_EXPIRED_POLICY = "Cannot update expired or cancelled policy";
     public static final String ERROR_INVALID_DATE_RANGE = "End date must be after start date";
+    public static final String ERROR_INVALID_VEHICLE_IMAGE = "Vehicle image must be a base64 encoded JPEG, PNG, GIF or WebP image";
+    public static final String ERROR_VEHICLE_IMAGE_TOO_LARGE = "Vehicle image must not be larger than ";
 } 
\ No newline at end of file
@@ -39,10 +39,18 @@ CREATE TABLE IF NOT EXISTS insurance_policies (
     collision_coverage_amount DECIMAL(12, 2),
     status VARCHAR(20) NOT NULL,
     notes TEXT,
+    vehicle_image_hash CHAR(64),
+    vehicle_image_type VARCHAR(50),
     vehicle_image LONGTEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-    FOREIGN KEY (vehicle_id) REFERENCES vehicles(id)
+    FOREIGN KEY (vehicle_id) REFERENCES vehicles(id),
+    -- Same indexes as @Table on InsurancePolicy, created with the table so they are never created twice
+    INDEX idx_policy_provider (provider, id),
+    INDEX idx_policy_status_end_date (status, end_date, id),
+    INDEX idx_policy_start_date (start_date, id),
+    INDEX idx_policy_end_date (end_date, id),
+    INDEX idx_policy_premium_amount (premium_amount, id)
 );
 
 -- Seed data for vehicles with owner information
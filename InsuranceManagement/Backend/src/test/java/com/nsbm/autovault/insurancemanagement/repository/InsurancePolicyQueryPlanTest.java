@@ -0,0 +1,181 @@
+package com.nsbm.autovault.insurancemanagement.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+import com.nsbm.autovault.insurancemanagement.dto.PolicySearchCriteria;
+
+/**
+ * Checks with EXPLAIN that the queries of GET /api/insurance/query use the indexes of InsurancePolicy
+ * The SQL Hibernate generates for InsurancePolicyRepository.findSummaries is captured and explained on 100000 policies
+ */
+@DataJpaTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+		"spring.sql.init.mode=never",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector="
+				+ "com.nsbm.autovault.insurancemanagement.repository.InsurancePolicyQueryPlanTest$SqlCapture"
+})
+class InsurancePolicyQueryPlanTest {
+
+	private static final int POLICIES = 100_000;
+	private static final int PAGE = 21;
+
+	@Autowired
+	private InsurancePolicyRepository policyRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	/**
+	 * Keeps the SQL of every statement Hibernate prepares
+	 */
+	public static class SqlCapture implements StatementInspector {
+
+		static final List<String> statements = new CopyOnWriteArrayList<>();
+
+		@Override
+		public String inspect(String sql) {
+			statements.add(sql);
+			return sql;
+		}
+	}
+
+	/**
+	 * 10 vehicles and 100000 policies of 50 providers, with 3 statuses and end dates over 10 years, committed once
+	 */
+	@BeforeAll
+	void seed() {
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("INSERT INTO vehicles (vehicle_make, vehicle_model, vehicle_year, vehicle_registration, "
+				+ "owner_first_name, owner_last_name) "
+				+ "SELECT 'Make ' || X, 'Model ' || X, 2020, 'REG-' || X, 'Jane', 'Doe' FROM SYSTEM_RANGE(1, 10)");
+		jdbc.execute("INSERT INTO insurance_policies (policy_number, provider, vehicle_id, start_date, end_date, "
+				+ "premium_amount, coverage_type, status) "
+				+ "SELECT 'POL-' || X, 'Provider ' || MOD(X, 50), "
+				+ "(SELECT MIN(id) FROM vehicles) + MOD(X, 10), "
+				+ "DATEADD('DAY', MOD(X * 7919, 3650), DATE '2020-01-01'), "
+				+ "DATEADD('DAY', MOD(X * 7919, 3650) + 365, DATE '2020-01-01'), "
+				+ "500 + MOD(X * 31, 200000) / 100.0, 'FULL', "
+				+ "CASE WHEN MOD(X, 10) < 6 THEN 'ACTIVE' WHEN MOD(X, 10) < 9 THEN 'EXPIRED' ELSE 'CANCELLED' END "
+				+ "FROM SYSTEM_RANGE(1, " + POLICIES + ")");
+		jdbc.execute("ANALYZE");
+	}
+
+	@BeforeEach
+	void clearStatements() {
+		SqlCapture.statements.clear();
+	}
+
+	@Test
+	void statusWithExpiryRangeUsesStatusEndDateIndex() {
+		PolicySearchCriteria criteria = PolicySearchCriteria.builder()
+				.status("ACTIVE")
+				.endDateFrom(LocalDate.of(2025, 1, 1))
+				.endDateTo(LocalDate.of(2025, 3, 31))
+				.build();
+		List<InsurancePolicySummaryDto> page = policyRepository.findSummaries(criteria, PolicySortKey.END_DATE, true, null, PAGE);
+
+		assertThat(page).hasSize(PAGE).allSatisfy(policy -> {
+			assertThat(policy.getStatus()).isEqualTo("ACTIVE");
+			assertThat(policy.getEndDate()).isBetween(criteria.getEndDateFrom(), criteria.getEndDateTo());
+		});
+		assertThat(planOfOnlyQuery()).containsIgnoringCase("idx_policy_status_end_date");
+	}
+
+	@Test
+	void providerUsesProviderIndex() {
+		PolicySearchCriteria criteria = PolicySearchCriteria.builder().provider("Provider 7").build();
+		List<InsurancePolicySummaryDto> page = policyRepository.findSummaries(criteria, PolicySortKey.ID, true, null, PAGE);
+
+		assertThat(page).hasSize(PAGE).allSatisfy(policy -> assertThat(policy.getProvider()).isEqualTo("Provider 7"));
+		assertThat(planOfOnlyQuery()).containsIgnoringCase("idx_policy_provider");
+	}
+
+	@Test
+	void premiumRangeUsesPremiumAmountIndex() {
+		PolicySearchCriteria criteria = PolicySearchCriteria.builder()
+				.premiumMin(new BigDecimal("900.00"))
+				.premiumMax(new BigDecimal("920.00"))
+				.build();
+		List<InsurancePolicySummaryDto> page = policyRepository.findSummaries(
+				criteria, PolicySortKey.PREMIUM_AMOUNT, false, null, PAGE);
+
+		assertThat(page).hasSize(PAGE).allSatisfy(policy ->
+				assertThat(policy.getPremiumAmount()).isBetween(criteria.getPremiumMin(), criteria.getPremiumMax()));
+		assertThat(planOfOnlyQuery()).containsIgnoringCase("idx_policy_premium_amount");
+	}
+
+	@Test
+	void combinedFiltersAfterCursorUseAnIndex() {
+		PolicySearchCriteria criteria = PolicySearchCriteria.builder()
+				.status("ACTIVE")
+				.endDateFrom(LocalDate.of(2024, 1, 1))
+				.endDateTo(LocalDate.of(2026, 12, 31))
+				.provider("Provider 12")
+				.premiumMin(new BigDecimal("500.00"))
+				.premiumMax(new BigDecimal("2000.00"))
+				.vehicleSearch("make")
+				.build();
+		PolicyCursor after = new PolicyCursor(PolicySortKey.END_DATE, true, LocalDate.of(2024, 6, 1), 0);
+		List<InsurancePolicySummaryDto> page = policyRepository.findSummaries(criteria, PolicySortKey.END_DATE, true, after, PAGE);
+
+		assertThat(page).isNotEmpty().allSatisfy(policy -> {
+			assertThat(policy.getStatus()).isEqualTo("ACTIVE");
+			assertThat(policy.getProvider()).isEqualTo("Provider 12");
+			assertThat(policy.getEndDate()).isAfterOrEqualTo(LocalDate.of(2024, 6, 1));
+		});
+		String plan = planOfOnlyQuery();
+		assertThat(plan).containsIgnoringCase("idx_policy_");
+		assertThat(plan).doesNotContainIgnoringCase("insurance_policies.tableScan");
+	}
+
+	@Test
+	void sortedPagesReadTheSortKeyIndexInOrder() {
+		PolicyCursor after = new PolicyCursor(PolicySortKey.END_DATE, true, LocalDate.of(2027, 6, 1), 12345);
+		List<InsurancePolicySummaryDto> page = policyRepository.findSummaries(
+				new PolicySearchCriteria(), PolicySortKey.END_DATE, true, after, PAGE);
+
+		assertThat(page).hasSize(PAGE);
+		String plan = planOfOnlyQuery();
+		assertThat(plan).containsIgnoringCase("idx_policy_end_date");
+		assertThat(plan).contains("index sorted");
+		assertThat(plan).doesNotContain("index sorted: ");
+	}
+
+	/**
+	 * EXPLAIN the single statement the last repository call ran, with its parameters unbound
+	 */
+	private String planOfOnlyQuery() {
+		assertThat(SqlCapture.statements).hasSize(1);
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement explain = connection.prepareStatement("EXPLAIN " + SqlCapture.statements.get(0));
+				ResultSet plan = explain.executeQuery()) {
+			assertThat(plan.next()).isTrue();
+			return plan.getString(1);
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
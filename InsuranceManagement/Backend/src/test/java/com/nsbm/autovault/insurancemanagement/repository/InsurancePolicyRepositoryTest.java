@@ -0,0 +1,179 @@
+package com.nsbm.autovault.insurancemanagement.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+
+import com.nsbm.autovault.insurancemanagement.dto.InsurancePolicySummaryDto;
+import com.nsbm.autovault.insurancemanagement.dto.PolicySearchCriteria;
+import com.nsbm.autovault.insurancemanagement.model.InsurancePolicy;
+import com.nsbm.autovault.insurancemanagement.model.Vehicle;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Checks that policies are loaded with their vehicle in one statement:
+ * a page of policies costs one select plus the count, whatever the page size, and a page in cursor mode just the select
+ */
+@DataJpaTest
+@TestPropertySource(properties = {
+		"spring.sql.init.mode=never",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class InsurancePolicyRepositoryTest {
+
+	private static final Pageable PAGE = PageRequest.of(0, 10, Sort.by("id"));
+
+	@Autowired
+	private InsurancePolicyRepository policyRepository;
+
+	@Autowired
+	private TestEntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Vehicle toyota;
+
+	/**
+	 * 36 policies over 3 vehicles, half of them expired, so that every query below finds more than a page
+	 */
+	@BeforeEach
+	void seed() {
+		List<Vehicle> vehicles = List.of(vehicle("Toyota", "Camry", "ABC-1234"),
+				vehicle("Honda", "Civic", "XYZ-5678"), vehicle("Ford", "Mustang", "DEF-9012"));
+		vehicles.forEach(entityManager::persist);
+		toyota = vehicles.get(0);
+		for (int i = 0; i < 36; i++) {
+			boolean expired = i < 18;
+			LocalDate endDate = expired ? LocalDate.now().minusDays(1 + i) : LocalDate.now().plusYears(1).plusDays(i);
+			entityManager.persist(InsurancePolicy.builder()
+					.policyNumber("POL-" + i)
+					.provider(i % 2 == 0 ? "Geico" : "Allstate")
+					.vehicle(vehicles.get(i % 3))
+					.startDate(endDate.minusYears(1))
+					.endDate(endDate)
+					.premiumAmount(BigDecimal.valueOf(1000 + i))
+					.coverageType("FULL")
+					.status(expired ? "EXPIRED" : "ACTIVE")
+					.build());
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+
+	@Test
+	void summaryPagesTakeOneSelectAndOneCount() {
+		assertPage(() -> policyRepository.findAllSummaries(PAGE), 36);
+		assertPage(() -> policyRepository.findSummariesByVehicleId(toyota.getId(), PAGE), 12);
+		assertPage(() -> policyRepository.findSummariesByProvider("geico", PAGE), 18);
+		assertPage(() -> policyRepository.findSummariesByEndDateBetween(
+				LocalDate.now().minusYears(1), LocalDate.now().plusYears(2), PAGE), 36);
+		assertPage(() -> policyRepository.findSummariesByEndDateAfterAndStatus(LocalDate.now(), "ACTIVE", PAGE), 18);
+		assertPage(() -> policyRepository.findSummariesByEndDateBefore(LocalDate.now(), PAGE), 18);
+		assertPage(() -> policyRepository.findSummariesByVehicleDetails("toy", PAGE), 12);
+		assertPage(() -> policyRepository.findSummariesByPremiumAmountRange(
+				BigDecimal.ZERO, BigDecimal.valueOf(5000), PAGE), 36);
+	}
+
+	@Test
+	void findersLoadTheVehicleInTheSameStatement() {
+		Statistics statistics = statistics();
+
+		InsurancePolicy policy = policyRepository.findByPolicyNumber("POL-7").orElseThrow();
+		assertThat(policy.getVehicle().getMake()).isEqualTo("Honda");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+		entityManager.clear();
+		statistics.clear();
+		policy = policyRepository.findById(policy.getId()).orElseThrow();
+		assertThat(policy.getVehicle().getModel()).isEqualTo("Civic");
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+		entityManager.clear();
+		statistics.clear();
+		List<InsurancePolicy> policies = policyRepository.findByVehicle(toyota);
+		assertThat(policies).hasSize(12)
+				.allSatisfy(p -> assertThat(p.getVehicle().getRegistrationNumber()).isEqualTo("ABC-1234"));
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+	}
+
+	@Test
+	void cursorPagesVisitEveryPolicyOnceInOrder() {
+		PolicySearchCriteria criteria = PolicySearchCriteria.builder().providerContains("geico").build();
+		for (PolicySortKey sortKey : PolicySortKey.values()) {
+			for (boolean ascending : new boolean[] {true, false}) {
+				Sort.Direction direction = ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+				List<Long> expected = policyRepository.findSummariesByProvider("geico",
+								PageRequest.of(0, 100, Sort.by(direction, sortKey.getAttribute(), "id")))
+						.map(InsurancePolicySummaryDto::getId).getContent();
+
+				List<Long> visited = new ArrayList<>();
+				PolicyCursor after = null;
+				do {
+					Statistics statistics = statistics();
+					List<InsurancePolicySummaryDto> page = policyRepository.findSummaries(criteria, sortKey, ascending, after, 5);
+					assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+					page.forEach(policy -> visited.add(policy.getId()));
+					after = page.size() < 5 ? null : PolicyCursor.decode(
+							PolicyCursor.after(page.get(4), sortKey, ascending).encode(), sortKey, ascending);
+				} while (after != null);
+
+				assertThat(visited).as("%s %s", sortKey, direction).isEqualTo(expected);
+			}
+		}
+		assertThat(policyRepository.countSummaries(criteria)).isEqualTo(18);
+		assertThat(policyRepository.countSummaries(PolicySearchCriteria.builder()
+				.vehicleSearch("camry").status("ACTIVE").build())).isEqualTo(6);
+	}
+
+	/**
+	 * Run a page query on an empty persistence context and check it took a select and a count,
+	 * and returned the vehicle columns of every policy
+	 */
+	private void assertPage(Supplier<Page<InsurancePolicySummaryDto>> query, long total) {
+		Statistics statistics = statistics();
+		Page<InsurancePolicySummaryDto> page = query.get();
+
+		assertThat(page.getTotalElements()).isEqualTo(total);
+		assertThat(page.getContent()).hasSize(10)
+				.allSatisfy(p -> assertThat(p.getVehicleMake()).isNotNull())
+				.allSatisfy(p -> assertThat(p.getVehicleRegistration()).isNotNull());
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+	}
+
+	private Statistics statistics() {
+		entityManager.clear();
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		return statistics;
+	}
+
+	private static Vehicle vehicle(String make, String model, String registration) {
+		return Vehicle.builder()
+				.make(make)
+				.model(model)
+				.year(2020)
+				.registrationNumber(registration)
+				.ownerFirstName("Jane")
+				.ownerLastName("Doe")
+				.build();
+	}
+}
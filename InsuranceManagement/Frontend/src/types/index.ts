@@ -17,6 +17,7 @@ export interface Policy {
   status: string;
   notes: string;
   vehicleImage?: string;
+  vehicleImageUrl?: string;
 }
 
 export interface ApiResponse {